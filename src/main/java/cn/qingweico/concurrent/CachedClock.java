@@ -0,0 +1,79 @@
+package cn.qingweico.concurrent;
+
+import cn.qingweico.datetime.DateUtil;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang3.time.FastDateFormat;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 粗粒度的缓存时钟
+ * 由后台守护线程每毫秒刷新一次当前时间, 热点路径上读取时间只是一次 volatile 读,
+ * 不再每次都调用 {@link System#currentTimeMillis()}; 精度为 {@link #TICK_MILLIS} 毫秒
+ * 同时缓存默认格式 {@link DateUtil#DATE_TIME_FORMATTER} 的时间字符串, 每秒只格式化一次
+ * 后台线程在第一次使用时才会启动
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+public final class CachedClock {
+    private static final long TICK_MILLIS = 1L;
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final FastDateFormat FORMAT = FastDateFormat.getInstance(DateUtil.DATE_TIME_FORMATTER);
+
+    private CachedClock() {
+    }
+
+    /**
+     * 延迟初始化的持有类, 只有读取缓存时间时才会加载并启动后台线程,
+     * 只调用 {@link #currentTimeMillis(boolean)} 且不使用缓存时钟的进程不会启动后台线程
+     */
+    private static final class Ticker {
+        private static volatile long now = System.currentTimeMillis();
+        private static volatile String formatted = FORMAT.format(now);
+
+        static {
+            ScheduledExecutorService ticker = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactoryBuilder().setNameFormat("cached-clock-ticker").setDaemon(true).build());
+            ticker.scheduleAtFixedRate(Ticker::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        private static void tick() {
+            long current = System.currentTimeMillis();
+            if (current / MILLIS_PER_SECOND != now / MILLIS_PER_SECOND) {
+                formatted = FORMAT.format(current);
+            }
+            now = current;
+        }
+    }
+
+    /**
+     * 返回缓存的当前时间(毫秒)
+     *
+     * @return 当前时间(毫秒)
+     */
+    public static long currentTimeMillis() {
+        return Ticker.now;
+    }
+
+    /**
+     * 返回缓存的当前时间的默认格式字符串
+     *
+     * @return 当前时间的格式化字符串 {@link DateUtil#DATE_TIME_FORMATTER}
+     */
+    public static String now() {
+        return Ticker.formatted;
+    }
+
+    /**
+     * 供调用方按需选择时钟来源
+     *
+     * @param cached 是否使用缓存时钟
+     * @return 当前时间(毫秒)
+     */
+    public static long currentTimeMillis(boolean cached) {
+        return cached ? Ticker.now : System.currentTimeMillis();
+    }
+}
@@ -40,10 +40,20 @@ public class UnsafeSupport {
      * {@link org.apache.commons.io.ThreadUtils#sleep(Duration)}}
      */
     public static void shortWait(long interval) {
-        long start = System.currentTimeMillis();
+        shortWait(interval, false);
+    }
+
+    /**
+     * @param interval the waiting interval; unit: ms
+     * @param cached   spin on {@link CachedClock} instead of calling {@link System#currentTimeMillis()} each round
+     * @see #shortWait(long)
+     */
+    public static void shortWait(long interval, boolean cached) {
+        long start = CachedClock.currentTimeMillis(cached);
         long end;
         do {
-            end = System.currentTimeMillis();
+            Thread.onSpinWait();
+            end = CachedClock.currentTimeMillis(cached);
         } while (start + interval >= end);
     }
 }
@@ -54,6 +54,7 @@ public class ThreadPoolBuilder {
         private boolean preStartAllCore = false;
         private boolean isEnableMonitor = false;
         private boolean allowCoreThreadTimeOut = false;
+        private boolean cachedClock = false;
         private String threadPoolName = null;
         private TimeUnit unit = TimeUnit.SECONDS;
         private BlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<>(blockQueueSize);
@@ -116,6 +117,12 @@ public class ThreadPoolBuilder {
             return this;
         }
 
+        /*optional*/
+        public Builder cachedClock(boolean cachedClock) {
+            this.cachedClock = cachedClock;
+            return this;
+        }
+
         /*optional*/
         public Builder threadPoolName(String threadPoolName) {
             this.threadPoolName = threadPoolName;
@@ -124,7 +131,7 @@ public class ThreadPoolBuilder {
 
         public ExecutorService build() {
             ThreadPoolExecutor executor = new ThreadPoolExecutorImpl(this.corePoolSize,
-                    this.maxPoolSize, this.keepAliveTime, this.unit, this.workQueue, this.isEnableMonitor);
+                    this.maxPoolSize, this.keepAliveTime, this.unit, this.workQueue, this.isEnableMonitor, this.cachedClock);
             if (this.allowCoreThreadTimeOut) {
                 log.info("Thread Pool allow core thread time out");
                 executor.allowCoreThreadTimeOut(true);
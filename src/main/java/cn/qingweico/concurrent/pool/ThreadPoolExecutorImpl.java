@@ -1,5 +1,6 @@
 package cn.qingweico.concurrent.pool;
 
+import cn.qingweico.concurrent.CachedClock;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
@@ -22,8 +23,22 @@ public class ThreadPoolExecutorImpl extends ThreadPoolExecutor {
                                   TimeUnit unit,
                                   BlockingQueue<Runnable> workQueue,
                                   boolean isEnableMonitor) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, isEnableMonitor, false);
+    }
+
+    /**
+     * @param cachedClock 监控任务耗时时是否使用 {@link CachedClock}, 精度为毫秒级, 省去每个任务前后两次系统调用
+     */
+    public ThreadPoolExecutorImpl(int corePoolSize,
+                                  int maximumPoolSize,
+                                  long keepAliveTime,
+                                  TimeUnit unit,
+                                  BlockingQueue<Runnable> workQueue,
+                                  boolean isEnableMonitor,
+                                  boolean cachedClock) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
         this.isEnableMonitor = isEnableMonitor;
+        this.cachedClock = cachedClock;
     }
 
     private final ThreadLocal<Long> startTimeTl = ThreadLocal.withInitial(() -> 0L);
@@ -33,12 +48,13 @@ public class ThreadPoolExecutorImpl extends ThreadPoolExecutor {
     private final AtomicReference<BigDecimal> totalExecutionTime = new AtomicReference<>(BigDecimal.ZERO);
     private final AtomicInteger totalExecutionCount = new AtomicInteger(0);
     boolean isEnableMonitor;
+    final boolean cachedClock;
 
     @Override
     protected void beforeExecute(Thread t, Runnable r) {
         super.beforeExecute(t, r);
         if (isEnableMonitor) {
-            startTimeTl.set(System.currentTimeMillis());
+            startTimeTl.set(CachedClock.currentTimeMillis(cachedClock));
         }
     }
 
@@ -47,7 +63,7 @@ public class ThreadPoolExecutorImpl extends ThreadPoolExecutor {
         super.afterExecute(r, t);
         if (isEnableMonitor) {
             long start = startTimeTl.get();
-            BigDecimal thisTimeCost = BigDecimal.valueOf(System.currentTimeMillis() - start);
+            BigDecimal thisTimeCost = BigDecimal.valueOf(CachedClock.currentTimeMillis(cachedClock) - start);
             totalExecutionTime.updateAndGet(currentTime -> currentTime.add(thisTimeCost));
             maxExecutionTime.updateAndGet(current -> current.compareTo(thisTimeCost) < 0 ? thisTimeCost : current);
             minExecutionTime.updateAndGet(current -> current.compareTo(thisTimeCost) > 0 ? thisTimeCost : current);
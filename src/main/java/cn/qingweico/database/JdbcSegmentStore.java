@@ -0,0 +1,119 @@
+package cn.qingweico.database;
+
+import cn.qingweico.supplier.SegmentStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Savepoint;
+
+/**
+ * 基于数据库表的号段存储, 连接来自 {@link DatabaseHelper#getConnection()}
+ * 表结构(MySQL):
+ * <pre>
+ * CREATE TABLE id_segment (
+ *     biz_tag VARCHAR(128) NOT NULL PRIMARY KEY,
+ *     max_id  BIGINT       NOT NULL
+ * );
+ * </pre>
+ * 在同一个事务中先 {@code UPDATE max_id = max_id + step} 再读取新的 {@code max_id},
+ * 行锁保证多个实例之间租借到的号段互不重叠
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@Slf4j
+public class JdbcSegmentStore implements SegmentStore {
+    private static final String DEFAULT_TABLE_NAME = "id_segment";
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    private final String updateSql;
+    private final String insertSql;
+    private final String selectSql;
+
+    public JdbcSegmentStore() {
+        this(DEFAULT_TABLE_NAME);
+    }
+
+    public JdbcSegmentStore(String tableName) {
+        this.updateSql = "UPDATE " + tableName + " SET max_id = max_id + ? WHERE biz_tag = ?";
+        this.insertSql = "INSERT INTO " + tableName + " (biz_tag, max_id) VALUES (?, ?)";
+        this.selectSql = "SELECT max_id FROM " + tableName + " WHERE biz_tag = ?";
+    }
+
+    @Override
+    public SegmentRange lease(String bizTag, int step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException(String.format("step must be greater than 0, but was %d", step));
+        }
+        Connection conn = DatabaseHelper.getConnection();
+        if (conn == null) {
+            throw new RuntimeException("Jdbc Connection is null");
+        }
+        try (conn) {
+            conn.setAutoCommit(false);
+            try {
+                if (update(conn, bizTag, step) == 0 && !insert(conn, bizTag, step)) {
+                    // 并发插入失败, 说明其他实例已经初始化了该行, 重新更新
+                    update(conn, bizTag, step);
+                }
+                long max = selectMax(conn, bizTag);
+                conn.commit();
+                log.debug("业务 {} 租借号段 [{}, {}]", bizTag, max - step + 1, max);
+                return new SegmentRange(max - step + 1, max + 1);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private int update(Connection conn, String bizTag, int step) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+            ps.setLong(1, step);
+            ps.setString(2, bizTag);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 插入失败只回滚到插入前的保存点, PostgreSQL 等数据库中语句失败后事务不能继续使用
+     *
+     * @return 是否插入成功, 违反唯一约束(其他实例已经插入)时返回 false
+     */
+    private boolean insert(Connection conn, String bizTag, int step) throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+            ps.setString(1, bizTag);
+            ps.setLong(2, step);
+            boolean inserted = ps.executeUpdate() > 0;
+            conn.releaseSavepoint(savepoint);
+            return inserted;
+        } catch (SQLException e) {
+            // SQLState 23xxx: 违反完整性约束, 不是所有驱动都会抛出 SQLIntegrityConstraintViolationException
+            if (e instanceof SQLIntegrityConstraintViolationException
+                    || (e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION))) {
+                conn.rollback(savepoint);
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private long selectMax(Connection conn, String bizTag) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+            ps.setString(1, bizTag);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("segment row not found for biz tag " + bizTag);
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package cn.qingweico.datetime;
 
+import cn.qingweico.concurrent.CachedClock;
 import org.apache.commons.lang3.time.FastDateFormat;
 
 import java.time.Instant;
@@ -14,7 +15,7 @@ import java.util.Date;
  * @see org.apache.commons.lang3.time.DateUtils
  */
 public class DateUtil {
-    private static final String DATE_TIME_FORMATTER = "yyyy-MM-dd HH:mm:ss";
+    public static final String DATE_TIME_FORMATTER = "yyyy-MM-dd HH:mm:ss";
 
     private static final DateTimeFormatter DEFAULT_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(DATE_TIME_FORMATTER);
 
@@ -73,6 +74,17 @@ public class DateUtil {
         return format(new Date());
     }
 
+    /**
+     * 获取当前时间的默认格式字符串
+     *
+     * @param cached 是否使用 {@link CachedClock} 缓存的时间字符串(秒级精度, 无需每次格式化)
+     * @return 当前时间的格式化字符串 {@link #DATE_TIME_FORMATTER}
+     * @see #now()
+     */
+    public static String now(boolean cached) {
+        return cached ? CachedClock.now() : now();
+    }
+
     /**
      * 将毫秒数转换为格式化的日期时间字符串
      * 2025-08-09T08:30:11.511 这种时间格式的被称为 ISO-8601
@@ -1,12 +1,29 @@
 package cn.qingweico.encrypt;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.ReaderInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.StringBuilderWriter;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Base64 编码解码工具类
+ * 除了基于 byte[] / String 的方法外, 还提供流式的编码解码: 使用固定大小的缓冲区分段处理,
+ * 内容不会整体加载到内存中, 输出与一次性编码相同(不换行, 末尾按需填充 {@code =})
+ * 解码时使用 {@link Base64InputStream}, 与 {@link Base64#decode(String)} 使用同一张解码表:
+ * 同时接受标准和 URL 安全({@code -}、{@code _})的字母表, 忽略不属于字母表的字符(如换行)
  *
  * @author zqw
  * @date 2022/8/27
@@ -14,6 +31,11 @@ import java.io.InputStream;
 public class Base64Convert {
 
     private static final Base64 BASE64 = new Base64();
+    /**
+     * 流式编码时每次读取的字节数, 是 3 的倍数, 中间的分段编码后不会产生填充
+     */
+    private static final int ENCODE_CHUNK_SIZE = 3 * 16 * 1024;
+    private static final int DECODE_CHUNK_SIZE = 64 * 1024;
 
 
     /**
@@ -22,21 +44,109 @@ public class Base64Convert {
      * @param in 输入流对象
      * @return Base64编码后的字符串
      * @throws IOException 当读取输入流发生错误时抛出
-     * @apiNote 方法会自动关闭输入流
-     * @see InputStream#available()
+     * @apiNote 方法会自动关闭输入流; 读取到流的末尾为止, 不依赖 {@link InputStream#available()}
      */
     public static String ioToBase64(InputStream in) throws IOException {
-        String strBase64;
-        try {
-            byte[] bytes = new byte[in.available()];
-            in.read(bytes);
-            strBase64 = BASE64.encodeToString(bytes);
-        } finally {
-            if (in != null) {
-                in.close();
+        try (in; StringBuilderWriter writer = new StringBuilderWriter()) {
+            encode(in, writer);
+            return writer.toString();
+        }
+    }
+
+    /**
+     * 流式编码, 不关闭输入输出流
+     *
+     * @param in  原始内容
+     * @param out Base64 编码后的内容
+     * @return 读取的原始字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long encode(InputStream in, OutputStream out) throws IOException {
+        // 关闭编码流时写出最后不足 3 个字节的部分和填充, 不关闭 out
+        try (OutputStream encoder = java.util.Base64.getEncoder().wrap(CloseShieldOutputStream.wrap(out))) {
+            return in.transferTo(encoder);
+        }
+    }
+
+    /**
+     * 流式编码, 编码结果直接写入字符输出, 不会先生成完整的字符串; 不关闭输入输出
+     *
+     * @param in     原始内容
+     * @param writer Base64 编码后的内容
+     * @return 读取的原始字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long encode(InputStream in, Writer writer) throws IOException {
+        java.util.Base64.Encoder encoder = java.util.Base64.getEncoder();
+        byte[] chunk = new byte[ENCODE_CHUNK_SIZE];
+        byte[] encoded = new byte[ENCODE_CHUNK_SIZE / 3 * 4];
+        char[] chars = new char[encoded.length];
+        long total = 0;
+        int read;
+        while ((read = in.readNBytes(chunk, 0, chunk.length)) > 0) {
+            // 只有最后一段可能不满
+            int length = encoder.encode(read == chunk.length ? chunk : Arrays.copyOf(chunk, read), encoded);
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) encoded[i];
             }
+            writer.write(chars, 0, length);
+            total += read;
         }
-        return strBase64;
+        return total;
+    }
+
+    /**
+     * 流式编码, 不关闭通道
+     *
+     * @param in  原始内容
+     * @param out Base64 编码后的内容
+     * @return 读取的原始字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long encode(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        return encode(Channels.newInputStream(in), Channels.newOutputStream(out));
+    }
+
+    /**
+     * 流式解码, 不关闭输入输出流
+     *
+     * @param in  Base64 编码的内容
+     * @param out 解码后的原始内容
+     * @return 写出的原始字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long decode(InputStream in, OutputStream out) throws IOException {
+        // 不关闭 in
+        return new Base64InputStream(CloseShieldInputStream.wrap(in), false).transferTo(out);
+    }
+
+    /**
+     * 流式解码, 直接从字符输入读取; 不关闭输入输出
+     *
+     * @param reader Base64 编码的内容
+     * @param out    解码后的原始内容
+     * @return 写出的原始字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long decode(Reader reader, OutputStream out) throws IOException {
+        // 非 ASCII 字符替换为 '?', 与其他不属于字母表的字符一样被忽略
+        return decode(ReaderInputStream.builder()
+                .setReader(reader)
+                .setCharset(StandardCharsets.US_ASCII)
+                .setBufferSize(DECODE_CHUNK_SIZE)
+                .get(), out);
+    }
+
+    /**
+     * 流式解码, 不关闭通道
+     *
+     * @param in  Base64 编码的内容
+     * @param out 解码后的原始内容
+     * @return 写出的原始字节数
+     * @throws IOException 读取或写入失败
+     */
+    public static long decode(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        return decode(Channels.newInputStream(in), Channels.newOutputStream(out));
     }
 
     /**
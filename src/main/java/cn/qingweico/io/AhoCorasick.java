@@ -0,0 +1,275 @@
+package cn.qingweico.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link MultiPatternSearcher} 使用的字节级 Aho–Corasick 自动机
+ * 模式串按 UTF-8 编码后构建 trie, 再按 BFS 补全所有状态的转移, 得到一个确定的自动机(DFA),
+ * 扫描时每个字节只查一次转移表, 与模式串的个数无关
+ * - 只把模式串中出现过的字节各自作为一类, 其余字节归为同一类, 转移表的大小为 {@code 状态数 * 字节类数}
+ * - 忽略大小写时 ASCII 大写字母与对应的小写字母归为同一类
+ * 构建后是只读的, 可以被多个线程同时使用
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+final class AhoCorasick {
+    private final String[] patterns;
+    private final int[] lengths;
+    /**
+     * 每个模式串中的换行符个数, 用于由结束位置的行号推算起始位置的行号
+     */
+    private final int[] newlines;
+    private final int[] classOf = new int[256];
+    private final int classes;
+    private final int[] delta;
+    /**
+     * 在该状态结束的模式串, 没有时为 -1
+     */
+    private final int[] output;
+    /**
+     * 沿失败链接找到的下一个有输出的状态, 没有时为 -1
+     */
+    private final int[] dictionary;
+    /**
+     * 到达该状态时第一个需要报告的状态: 自身有输出时为自身, 否则为 {@link #dictionary}
+     */
+    private final int[] report;
+    private final int maxLength;
+
+    /**
+     * 匹配回调, 同一个结束位置可能有多个模式串
+     */
+    @FunctionalInterface
+    interface MatchSink {
+        /**
+         * @param pattern  模式串的下标
+         * @param end      匹配的最后一个字节在扫描区间中的位置
+         * @param newlines 从区间起点到 {@code end}(包含)的换行符个数
+         * @return 是否继续扫描
+         */
+        boolean accept(int pattern, long end, long newlines);
+    }
+
+    /**
+     * @param patterns   模式串, 不能为空串, 重复的只保留第一个
+     * @param ignoreCase 是否忽略 ASCII 字母的大小写
+     */
+    AhoCorasick(List<String> patterns, boolean ignoreCase) {
+        Set<String> distinct = new LinkedHashSet<>(patterns);
+        this.patterns = distinct.toArray(new String[0]);
+        byte[][] encoded = new byte[this.patterns.length][];
+        this.lengths = new int[this.patterns.length];
+        this.newlines = new int[this.patterns.length];
+        int total = 0;
+        int longest = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            if (this.patterns[i].isEmpty()) {
+                throw new IllegalArgumentException("pattern must not be empty");
+            }
+            encoded[i] = this.patterns[i].getBytes(StandardCharsets.UTF_8);
+            lengths[i] = encoded[i].length;
+            for (byte b : encoded[i]) {
+                if (b == '\n') {
+                    newlines[i]++;
+                }
+            }
+            total += encoded[i].length;
+            longest = Math.max(longest, encoded[i].length);
+        }
+        this.maxLength = longest;
+        this.classes = assignClasses(encoded, ignoreCase);
+
+        int capacity = total + 1;
+        if ((long) capacity * classes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("too many patterns: %d states * %d byte classes", capacity, classes));
+        }
+        int[] table = new int[capacity * classes];
+        int[] out = new int[capacity];
+        Arrays.fill(out, -1);
+        int states = 1;
+        // trie, 0 表示没有转移(根节点不会是其他状态的子节点)
+        for (int p = 0; p < encoded.length; p++) {
+            int state = 0;
+            for (byte b : encoded[p]) {
+                int index = state * classes + classOf[b & 0xff];
+                if (table[index] == 0) {
+                    table[index] = states++;
+                }
+                state = table[index];
+            }
+            if (out[state] < 0) {
+                out[state] = p;
+            }
+        }
+
+        int[] fail = new int[states];
+        int[] dict = new int[states];
+        dict[0] = -1;
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int s = queue[head++];
+            for (int c = 0; c < classes; c++) {
+                int index = s * classes + c;
+                int t = table[index];
+                if (t != 0) {
+                    fail[t] = s == 0 ? 0 : table[fail[s] * classes + c];
+                    dict[t] = out[fail[t]] >= 0 ? fail[t] : dict[fail[t]];
+                    queue[tail++] = t;
+                } else if (s != 0) {
+                    // 补全转移: 沿失败链接的转移(按 BFS 顺序, 失败状态的转移已经补全)
+                    table[index] = table[fail[s] * classes + c];
+                }
+            }
+        }
+        this.output = Arrays.copyOf(out, states);
+        this.dictionary = dict;
+        this.report = new int[states];
+        for (int s = 0; s < states; s++) {
+            report[s] = output[s] >= 0 ? s : dictionary[s];
+        }
+        // 转移表中保存目标状态的行首, 扫描时不需要乘法; 目标状态需要报告时保存为负数(根节点不会需要报告)
+        this.delta = Arrays.copyOf(table, states * classes);
+        for (int i = 0; i < delta.length; i++) {
+            int target = delta[i];
+            delta[i] = report[target] > 0 ? -target * classes : target * classes;
+        }
+    }
+
+    private int assignClasses(byte[][] encoded, boolean ignoreCase) {
+        if (ignoreCase) {
+            for (byte[] pattern : encoded) {
+                for (int i = 0; i < pattern.length; i++) {
+                    pattern[i] = toLowerCase(pattern[i]);
+                }
+            }
+        }
+        // 类 0 表示没有在模式串中出现的字节
+        int next = 1;
+        for (byte[] pattern : encoded) {
+            for (byte b : pattern) {
+                if (classOf[b & 0xff] == 0) {
+                    classOf[b & 0xff] = next++;
+                }
+            }
+        }
+        if (ignoreCase) {
+            for (int b = 'A'; b <= 'Z'; b++) {
+                classOf[b] = classOf[b + ('a' - 'A')];
+            }
+        }
+        return next;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * @return 新的扫描状态, 从区间的起点开始
+     */
+    Scanner scanner() {
+        return new Scanner();
+    }
+
+    /**
+     * 一次扫描的状态, 同一个区间的数据可以分多次调用 {@link #feed} 依次传入
+     */
+    final class Scanner {
+        /**
+         * 当前状态在转移表中的行首({@code 状态 * 字节类数})
+         */
+        private int row;
+        private long lines;
+
+        /**
+         * 扫描 {@code data[from, to)}, 只报告结束位置不小于 {@code reportFrom} 的匹配
+         * (区间起点之后的 {@link #maxLength()} - 1 个字节可能只用于接上前一个块中未完成的匹配)
+         *
+         * @param base       {@code data[from]} 在整个区间中的位置
+         * @param reportFrom 区间中开始报告匹配的位置
+         * @return 是否继续扫描, sink 要求停止时返回 false
+         */
+        boolean feed(byte[] data, int from, int to, long base, long reportFrom, MatchSink sink) {
+            int[] delta = AhoCorasick.this.delta;
+            int[] classOf = AhoCorasick.this.classOf;
+            int row = this.row;
+            long lines = this.lines;
+            for (int i = from; i < to; i++) {
+                byte b = data[i];
+                if (b == '\n') {
+                    lines++;
+                }
+                int next = delta[row + classOf[b & 0xff]];
+                if (next >= 0) {
+                    row = next;
+                    continue;
+                }
+                // 负数表示到达的状态有需要报告的模式串
+                row = -next;
+                long end = base + i - from;
+                if (end >= reportFrom) {
+                    for (int s = report[row / classes]; s > 0; s = dictionary[s]) {
+                        if (!sink.accept(output[s], end, lines)) {
+                            this.row = row;
+                            this.lines = lines;
+                            return false;
+                        }
+                    }
+                }
+            }
+            this.row = row;
+            this.lines = lines;
+            return true;
+        }
+
+        /**
+         * @return 已扫描的数据中的换行符个数
+         */
+        long lines() {
+            return lines;
+        }
+    }
+
+    int size() {
+        return patterns.length;
+    }
+
+    String pattern(int index) {
+        return patterns[index];
+    }
+
+    int length(int index) {
+        return lengths[index];
+    }
+
+    int newlines(int index) {
+        return newlines[index];
+    }
+
+    /**
+     * @return 最长的模式串的字节数
+     */
+    int maxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return 转移表的状态数
+     */
+    int states() {
+        return output.length;
+    }
+
+    List<String> patterns() {
+        return new ArrayList<>(Arrays.asList(patterns));
+    }
+}
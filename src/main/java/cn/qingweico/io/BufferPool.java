@@ -0,0 +1,353 @@
+package cn.qingweico.io;
+
+import cn.qingweico.constants.Constants;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * 按大小分级的缓冲区池, 分别缓存堆内的 {@code byte[]} 和堆外的 {@link ByteBuffer}
+ * - 大小从 {@link #MIN_SIZE} 到 {@link #MAX_SIZE} 按 2 的幂分级, 申请的大小向上取整到所在的级别,
+ * 超过 {@link #MAX_SIZE} 的申请直接分配, 不进入池
+ * - 每个线程先使用自己的本地缓存(不需要同步), 本地缓存满了或者为空时再访问所有线程共享的池;
+ * 线程结束时本地缓存中的缓冲区不会归还到共享池, 临时创建的线程池中的工作线程应该使用 {@link #sharedHeap} / {@link #sharedDirect}
+ * 直接从共享池借出和归还, 不经过本地缓存
+ * - 共享池每个级别缓存的总字节数有上限, 超出的缓冲区直接丢弃交给 GC
+ * - 归还的缓冲区不会清零, 借出的 {@code byte[]} 中可能有上一次使用留下的数据
+ * - 泄漏检测: 借出的 {@link Lease} 没有调用 {@link Lease#close()} 就被 GC 回收时输出警告,
+ * 检测级别见 {@link LeakDetection}, 默认级别可以通过系统属性 {@value #LEAK_DETECTION_PROPERTY} 设置
+ * <pre>{@code
+ * try (BufferPool.Lease<byte[]> lease = BufferPool.DEFAULT.heap(8192)) {
+ *     byte[] buffer = lease.get();
+ *     ...
+ * }
+ * }</pre>
+ *
+ * @author zqw
+ * @date 2026/10/19
+ * @see PooledByteArrayOutputStream
+ */
+@Slf4j
+public final class BufferPool {
+    public static final int MIN_SIZE = 4 * Constants.KB;
+    public static final int MAX_SIZE = Constants.KB * Constants.KB;
+    public static final String LEAK_DETECTION_PROPERTY = "qingweico.buffer.leakDetection";
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1;
+    /**
+     * 每个线程每个级别本地缓存的字节数上限, 至少缓存一个
+     */
+    private static final int THREAD_CACHE_BYTES = 256 * Constants.KB;
+    private static final int THREAD_CACHE_MAX_COUNT = 16;
+    /**
+     * {@link LeakDetection#SAMPLED} 时每多少次借出跟踪一次
+     */
+    private static final int SAMPLING_INTERVAL = 128;
+    private static final Cleaner CLEANER = Cleaner.create();
+    /**
+     * 共享的默认实例, 必须在以上静态字段之后初始化
+     */
+    public static final BufferPool DEFAULT = new BufferPool(4 * MAX_SIZE, LeakDetection.fromProperty());
+
+    private final Arena<byte[]> heap;
+    private final Arena<ByteBuffer> direct;
+    private final LeakDetection leakDetection;
+    private final LongAdder leaks = new LongAdder();
+
+    /**
+     * 泄漏检测级别
+     */
+    public enum LeakDetection {
+        /**
+         * 不检测
+         */
+        DISABLED,
+        /**
+         * 抽样跟踪一部分借出的缓冲区, 开销很小
+         */
+        SAMPLED,
+        /**
+         * 跟踪所有借出的缓冲区并记录借出时的调用栈, 用于排查问题
+         */
+        PARANOID;
+
+        static LeakDetection fromProperty() {
+            String value = System.getProperty(LEAK_DETECTION_PROPERTY);
+            if (value == null) {
+                return SAMPLED;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.warn("无效的泄漏检测级别 {}, 使用 {}", value, SAMPLED);
+                return SAMPLED;
+            }
+        }
+    }
+
+    /**
+     * @param maxBytesPerClass 共享池中每个级别缓存的字节数上限(堆内和堆外分别计算)
+     * @param leakDetection    泄漏检测级别
+     */
+    public BufferPool(int maxBytesPerClass, LeakDetection leakDetection) {
+        if (maxBytesPerClass < 0) {
+            throw new IllegalArgumentException(String.format("maxBytesPerClass must not be negative, but was %d", maxBytesPerClass));
+        }
+        this.leakDetection = leakDetection;
+        this.heap = new Arena<>("heap", byte[]::new, maxBytesPerClass);
+        this.direct = new Arena<>("direct", ByteBuffer::allocateDirect, maxBytesPerClass);
+    }
+
+    /**
+     * 借出堆内缓冲区
+     *
+     * @param minCapacity 最小容量, 实际长度可能更大
+     * @return 使用完毕后需要关闭
+     */
+    public Lease<byte[]> heap(int minCapacity) {
+        return lease(heap, minCapacity, true);
+    }
+
+    /**
+     * 借出堆内缓冲区, 不经过当前线程的本地缓存, 用于短时间存在的工作线程
+     *
+     * @param minCapacity 最小容量, 实际长度可能更大
+     * @return 使用完毕后需要关闭, 关闭时归还到共享池
+     */
+    public Lease<byte[]> sharedHeap(int minCapacity) {
+        return lease(heap, minCapacity, false);
+    }
+
+    /**
+     * 借出堆外缓冲区, position 为 0, limit 为容量
+     *
+     * @param minCapacity 最小容量, 实际容量可能更大
+     * @return 使用完毕后需要关闭
+     */
+    public Lease<ByteBuffer> direct(int minCapacity) {
+        return lease(direct, minCapacity, true);
+    }
+
+    /**
+     * 借出堆外缓冲区, 不经过当前线程的本地缓存, 用于短时间存在的工作线程
+     *
+     * @param minCapacity 最小容量, 实际容量可能更大
+     * @return 使用完毕后需要关闭, 关闭时归还到共享池
+     */
+    public Lease<ByteBuffer> sharedDirect(int minCapacity) {
+        return lease(direct, minCapacity, false);
+    }
+
+    /**
+     * @return 新分配的缓冲区个数(包括超过 {@link #MAX_SIZE} 不进入池的)
+     */
+    public long allocations() {
+        return heap.allocations.sum() + direct.allocations.sum();
+    }
+
+    /**
+     * @return 从池中复用的次数
+     */
+    public long reuses() {
+        return heap.reuses.sum() + direct.reuses.sum();
+    }
+
+    /**
+     * @return 检测到的泄漏次数, 只包括被跟踪的缓冲区
+     */
+    public long leaks() {
+        return leaks.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BufferPool{allocations=%d, reuses=%d, leaks=%d, leakDetection=%s}",
+                allocations(), reuses(), leaks(), leakDetection);
+    }
+
+    /**
+     * @param threadCache 是否使用当前线程的本地缓存
+     */
+    private <T> Lease<T> lease(Arena<T> arena, int minCapacity, boolean threadCache) {
+        if (minCapacity < 0) {
+            throw new IllegalArgumentException(String.format("minCapacity must not be negative, but was %d", minCapacity));
+        }
+        int sizeClass = sizeClass(minCapacity);
+        T buffer = sizeClass < 0 ? null : arena.poll(sizeClass, threadCache);
+        if (buffer == null) {
+            buffer = arena.allocator.apply(sizeClass < 0 ? minCapacity : MIN_SIZE << sizeClass);
+            arena.allocations.increment();
+        } else {
+            arena.reuses.increment();
+        }
+        Lease<T> lease = new Lease<>(arena, sizeClass, threadCache, buffer);
+        if (leakDetection == LeakDetection.PARANOID
+                || (leakDetection == LeakDetection.SAMPLED && ThreadLocalRandom.current().nextInt(SAMPLING_INTERVAL) == 0)) {
+            lease.track(new LeakTracker(arena.name, minCapacity,
+                    leakDetection == LeakDetection.PARANOID ? new Throwable("buffer leased here") : null));
+        }
+        return lease;
+    }
+
+    /**
+     * @return 级别, 超过 {@link #MAX_SIZE} 时返回 -1
+     */
+    private static int sizeClass(int capacity) {
+        if (capacity > MAX_SIZE) {
+            return -1;
+        }
+        if (capacity <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+    }
+
+    /**
+     * 借出的缓冲区, 关闭时归还到池中, 多次关闭只归还一次
+     * 不是线程安全的, 同一个 lease 不要在多个线程中同时使用
+     *
+     * @param <T> {@code byte[]} 或 {@link ByteBuffer}
+     */
+    public static final class Lease<T> implements AutoCloseable {
+        private final Arena<T> arena;
+        private final int sizeClass;
+        private final boolean threadCache;
+        private T buffer;
+        private Cleaner.Cleanable cleanable;
+        private LeakTracker tracker;
+
+        private Lease(Arena<T> arena, int sizeClass, boolean threadCache, T buffer) {
+            this.arena = arena;
+            this.sizeClass = sizeClass;
+            this.threadCache = threadCache;
+            this.buffer = buffer;
+        }
+
+        private void track(LeakTracker tracker) {
+            this.tracker = tracker;
+            this.cleanable = CLEANER.register(this, tracker);
+        }
+
+        /**
+         * @return 缓冲区
+         * @throws IllegalStateException 已经归还
+         */
+        public T get() {
+            T current = buffer;
+            if (current == null) {
+                throw new IllegalStateException("buffer has already been released");
+            }
+            return current;
+        }
+
+        @Override
+        public void close() {
+            T current = buffer;
+            if (current == null) {
+                return;
+            }
+            buffer = null;
+            if (tracker != null) {
+                tracker.released = true;
+                cleanable.clean();
+            }
+            if (sizeClass >= 0) {
+                arena.offer(sizeClass, current, threadCache);
+            }
+        }
+    }
+
+    /**
+     * 不能引用 {@link Lease}, 否则 lease 永远不会被回收
+     */
+    private final class LeakTracker implements Runnable {
+        private final String kind;
+        private final int capacity;
+        private final Throwable site;
+        private volatile boolean released;
+
+        LeakTracker(String kind, int capacity, Throwable site) {
+            this.kind = kind;
+            this.capacity = capacity;
+            this.site = site;
+        }
+
+        @Override
+        public void run() {
+            if (released) {
+                return;
+            }
+            leaks.increment();
+            if (site == null) {
+                log.warn("检测到缓冲区泄漏: {} 缓冲区({} 字节)未归还就被回收, 设置 -D{}={} 可以记录借出时的调用栈",
+                        kind, capacity, LEAK_DETECTION_PROPERTY, LeakDetection.PARANOID);
+            } else {
+                log.warn("检测到缓冲区泄漏: {} 缓冲区({} 字节)未归还就被回收", kind, capacity, site);
+            }
+        }
+    }
+
+    /**
+     * 同一种缓冲区的所有级别
+     */
+    private static final class Arena<T> {
+        private final String name;
+        private final IntFunction<T> allocator;
+        private final Queue<T>[] shared;
+        private final ThreadLocal<ArrayDeque<T>[]> local;
+        private final LongAdder allocations = new LongAdder();
+        private final LongAdder reuses = new LongAdder();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Arena(String name, IntFunction<T> allocator, int maxBytesPerClass) {
+            this.name = name;
+            this.allocator = allocator;
+            this.shared = new Queue[SIZE_CLASSES];
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                shared[i] = new ArrayBlockingQueue<>(Math.max(maxBytesPerClass / (MIN_SIZE << i), 1));
+            }
+            this.local = ThreadLocal.withInitial(() -> new ArrayDeque[SIZE_CLASSES]);
+        }
+
+        T poll(int sizeClass, boolean threadCache) {
+            if (!threadCache) {
+                return shared[sizeClass].poll();
+            }
+            ArrayDeque<T> cache = local.get()[sizeClass];
+            T buffer = cache == null ? null : cache.pollLast();
+            return buffer != null ? buffer : shared[sizeClass].poll();
+        }
+
+        void offer(int sizeClass, T buffer, boolean threadCache) {
+            if (buffer instanceof ByteBuffer byteBuffer) {
+                byteBuffer.clear();
+            }
+            if (!threadCache) {
+                // 共享池满时丢弃
+                shared[sizeClass].offer(buffer);
+                return;
+            }
+            ArrayDeque<T>[] caches = local.get();
+            ArrayDeque<T> cache = caches[sizeClass];
+            int limit = Math.min(Math.max(THREAD_CACHE_BYTES / (MIN_SIZE << sizeClass), 1), THREAD_CACHE_MAX_COUNT);
+            if (cache == null) {
+                cache = caches[sizeClass] = new ArrayDeque<>(limit);
+            }
+            if (cache.size() < limit) {
+                cache.addLast(buffer);
+            } else {
+                // 共享池也满时丢弃
+                shared[sizeClass].offer(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package cn.qingweico.io;
+
+import cn.qingweico.concurrent.pool.ThreadPoolBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 目录树的内存索引
+ * 打开时遍历一次目录树, 之后通过 {@link WatchService} 监听每个目录的创建 / 删除事件增量更新,
+ * 列出文件和按后缀查找都直接从内存中返回, 不再访问文件系统
+ * - 文件按路径排序保存在 {@link ConcurrentSkipListSet} 中, 查询某个子目录时只取该目录对应的区间
+ * - 另外按扩展名(最后一个 {@code .} 开始的部分, 区分大小写)建立索引, 后缀是单个扩展名时直接命中
+ * - 事件溢出({@link StandardWatchEventKinds#OVERFLOW})或者手动调用 {@link #rescan()} 时重新遍历, 新的结果准备好后整体替换
+ * - 事件在后台线程中异步处理, 查询结果可能短暂地落后于文件系统
+ * - 关闭后, 或者后台重建失败停止监听后, 索引不再更新, 查询时抛出异常, 不会返回过期的结果
+ * 打开的索引按根目录登记, {@link FileUtils#listFiles(String)}、{@link FileUtils#fileList(String)}、
+ * {@link FileUtils#filterFileByTarget} 查询已被索引覆盖的目录时直接使用索引
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class DirectoryIndex implements Closeable {
+    private static final Map<Path, DirectoryIndex> OPENED = new ConcurrentHashMap<>();
+
+    private final Path root;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private final ExecutorService watcher;
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong rescans = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private volatile boolean closed;
+    /**
+     * 后台重建失败的原因, 之后索引不再更新
+     */
+    private volatile IOException failure;
+
+    /**
+     * 一次遍历的结果, 之后的事件直接修改其中的集合
+     */
+    private record Snapshot(NavigableSet<Path> files, Map<String, NavigableSet<Path>> byExtension) {
+        Snapshot() {
+            this(new ConcurrentSkipListSet<>(), new ConcurrentHashMap<>());
+        }
+
+        void add(Path file) {
+            if (files.add(file)) {
+                byExtension.computeIfAbsent(extension(file), k -> new ConcurrentSkipListSet<>()).add(file);
+            }
+        }
+
+        void remove(Path path) {
+            // 可能是文件, 也可能是目录(删除目录下所有文件)
+            for (Path file : under(files, path)) {
+                files.remove(file);
+                NavigableSet<Path> sameExtension = byExtension.get(extension(file));
+                if (sameExtension != null) {
+                    sameExtension.remove(file);
+                }
+            }
+        }
+    }
+
+    private DirectoryIndex(Path root) throws IOException {
+        this.root = root;
+        this.watchService = root.getFileSystem().newWatchService();
+        try {
+            this.snapshot = scan(root);
+        } catch (IOException | RuntimeException e) {
+            closeWatchService();
+            throw e;
+        }
+        this.watcher = ThreadPoolBuilder.single(true);
+        this.watcher.execute(this::processEvents);
+    }
+
+    /**
+     * 打开目录的索引, 同一个目录已经打开时返回已有的索引
+     *
+     * @param root 根目录
+     * @return 索引
+     * @throws IOException 目录不存在或者遍历失败
+     */
+    public static DirectoryIndex open(Path root) throws IOException {
+        Path normalized = root.toAbsolutePath().normalize();
+        if (!Files.isDirectory(normalized)) {
+            throw new IOException(String.format("%s is not a directory", root));
+        }
+        synchronized (OPENED) {
+            DirectoryIndex index = OPENED.get(normalized);
+            if (index == null) {
+                index = new DirectoryIndex(normalized);
+                OPENED.put(normalized, index);
+                log.info("目录 {} 的索引已建立, 共 {} 个文件", normalized, index.size());
+            }
+            return index;
+        }
+    }
+
+    /**
+     * @param path 目录
+     * @return 覆盖该目录的已打开的索引, 没有时返回 null
+     */
+    static DirectoryIndex find(Path path) {
+        if (OPENED.isEmpty()) {
+            return null;
+        }
+        for (Path dir = path.toAbsolutePath().normalize(); dir != null; dir = dir.getParent()) {
+            DirectoryIndex index = OPENED.get(dir);
+            if (index != null) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 根目录下的所有文件, 按路径排序
+     */
+    public List<Path> list() {
+        return list(root);
+    }
+
+    /**
+     * @param dir 根目录或者其中的子目录
+     * @return 目录下的所有文件, 按路径排序, 路径以 {@code dir} 开头(与 {@code dir} 同为相对路径或绝对路径)
+     */
+    public List<Path> list(Path dir) {
+        ensureWatching();
+        return resolve(dir, snapshot.files());
+    }
+
+    /**
+     * @param suffix 文件路径的后缀, 如 {@code .java}
+     * @return 根目录下以该后缀结尾的文件, 按路径排序
+     */
+    public List<Path> listBySuffix(String suffix) {
+        return listBySuffix(root, suffix);
+    }
+
+    /**
+     * @param dir    根目录或者其中的子目录
+     * @param suffix 文件路径的后缀, 如 {@code .java}, 区分大小写
+     * @return 目录下以该后缀结尾的文件, 按路径排序
+     */
+    public List<Path> listBySuffix(Path dir, String suffix) {
+        ensureWatching();
+        Snapshot current = snapshot;
+        if (suffix.lastIndexOf('.') == 0) {
+            NavigableSet<Path> sameExtension = current.byExtension().get(suffix);
+            return sameExtension == null ? new ArrayList<>() : resolve(dir, sameExtension);
+        }
+        List<Path> files = resolve(dir, current.files());
+        files.removeIf(file -> !file.toString().endsWith(suffix));
+        return files;
+    }
+
+    /**
+     * @return 当前索引中的文件数
+     */
+    public int size() {
+        return snapshot.files().size();
+    }
+
+    /**
+     * @return 已处理的事件数
+     */
+    public long events() {
+        return events.get();
+    }
+
+    /**
+     * @return 重新遍历的次数(不包括打开时的遍历)
+     */
+    public long rescans() {
+        return rescans.get();
+    }
+
+    /**
+     * 重新遍历目录树并替换当前的索引
+     *
+     * @throws IOException 遍历失败, 此时保留原来的索引
+     */
+    public synchronized void rescan() throws IOException {
+        snapshot = scan(root);
+        rescans.incrementAndGet();
+        log.info("目录 {} 的索引已重建, 共 {} 个文件", root, size());
+    }
+
+    /**
+     * 停止监听并取消登记
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        OPENED.remove(root, this);
+        watchService.close();
+        watcher.shutdownNow();
+    }
+
+    /**
+     * @throws IllegalStateException 索引已关闭
+     * @throws UncheckedIOException  后台重建失败, 索引已停止监听
+     */
+    private void ensureWatching() {
+        if (failure != null) {
+            throw new UncheckedIOException(String.format("index of %s stopped watching", root), failure);
+        }
+        if (closed) {
+            throw new IllegalStateException(String.format("index of %s is closed", root));
+        }
+    }
+
+    private void closeWatchService() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("关闭目录 {} 的监听失败, {}", root, e.getMessage());
+        }
+    }
+
+    private List<Path> resolve(Path dir, NavigableSet<Path> files) {
+        Path absolute = dir.toAbsolutePath().normalize();
+        if (!absolute.startsWith(root)) {
+            throw new IllegalArgumentException(String.format("%s is not under %s", dir, root));
+        }
+        List<Path> result = under(files, absolute);
+        if (!dir.equals(absolute)) {
+            result.replaceAll(file -> dir.resolve(absolute.relativize(file)));
+        }
+        return result;
+    }
+
+    /**
+     * 路径按字符串排序, 以 {@code dir} 的字符串开头的路径在排序后是连续的一段, 从 {@code dir} 开始查找,
+     * 其中与 {@code dir} 同级、名称以 {@code dir} 的名称开头的路径(如 {@code dir-1/a})跳过
+     *
+     * @return {@code dir} 本身(是文件时)以及 {@code dir} 下的所有文件
+     */
+    private static List<Path> under(NavigableSet<Path> files, Path dir) {
+        String prefix = dir.toString();
+        List<Path> result = new ArrayList<>();
+        for (Path file : files.tailSet(dir, true)) {
+            if (file.startsWith(dir)) {
+                result.add(file);
+            } else if (!file.toString().startsWith(prefix)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot);
+    }
+
+    private Snapshot scan(Path dir) throws IOException {
+        Snapshot scanned = new Snapshot();
+        walk(dir, scanned);
+        return scanned;
+    }
+
+    /**
+     * 遍历目录, 登记其中的所有目录并把文件加入索引
+     * 先登记目录再列出文件, 登记之后新建的文件会产生事件, 不会遗漏
+     */
+    private void walk(Path dir, Snapshot target) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = d.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirs.put(key, d);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                // 与 Files.walk + Files::isRegularFile 一样, 指向普通文件的符号链接也算普通文件
+                if (attrs.isRegularFile() || (attrs.isSymbolicLink() && Files.isRegularFile(file))) {
+                    target.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                log.debug("无法访问 {}, {}", file, exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void processEvents() {
+        try {
+            for (; ; ) {
+                WatchKey key = watchService.take();
+                Path dir = watchedDirs.get(key);
+                boolean overflow = false;
+                synchronized (this) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        events.incrementAndGet();
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else if (dir != null) {
+                            apply(event.kind(), dir.resolve((Path) event.context()));
+                        }
+                    }
+                    if (overflow) {
+                        log.warn("目录 {} 的事件溢出, 重新遍历", root);
+                        rescan();
+                    }
+                }
+                if (!key.reset()) {
+                    // 目录已被删除
+                    watchedDirs.remove(key);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("目录 {} 的索引已关闭", root);
+        } catch (IOException e) {
+            log.error("目录 {} 的索引重建失败, 停止监听, {}", root, e.getMessage(), e);
+            OPENED.remove(root, this);
+            failure = e;
+            closeWatchService();
+        }
+    }
+
+    /**
+     * 取消 {@code path} 以及其下所有目录的监听
+     * 目录被移出根目录时也会收到删除事件, 但 inotify 跟随的是 inode, 原来的 {@link WatchKey} 仍然有效,
+     * 不取消时移走的目录中之后新建的文件会按原来(已不存在)的路径加入索引
+     */
+    private void unwatch(Path path) {
+        watchedDirs.entrySet().removeIf(entry -> {
+            if (!entry.getValue().startsWith(path)) {
+                return false;
+            }
+            entry.getKey().cancel();
+            return true;
+        });
+    }
+
+    private void apply(WatchEvent.Kind<?> kind, Path child) {
+        Snapshot current = snapshot;
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            current.remove(child);
+            unwatch(child);
+        } else if (Files.isDirectory(child)) {
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                // 新目录登记之前创建的文件不会产生事件, 需要遍历一次
+                try {
+                    walk(child, current);
+                } catch (IOException e) {
+                    // 目录在处理事件之前又被删除, 之后会收到删除事件
+                    log.debug("遍历新目录 {} 失败, {}", child, e.getMessage());
+                }
+            }
+        } else if (Files.isRegularFile(child)) {
+            current.add(child);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package cn.qingweico.io;
+
+import cn.qingweico.concurrent.pool.ThreadPoolBuilder;
+import cn.qingweico.constants.Constants;
+import cn.qingweico.convert.ByteUnitConverter;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件复制引擎
+ * {@link Strategy#AUTO} 按文件大小选择复制方式:
+ * - 小文件使用 {@link Files#copy}, 由 JDK 的平台实现一次完成
+ * - 一般的文件使用 {@link FileChannel#transferTo}, 由内核完成拷贝, 数据不经过用户态;
+ * 内核拷贝不可用时(transferTo 没有进展)退化为直接缓冲区读写
+ * - 超大文件按区间切分, 多个线程使用直接缓冲区同时进行位置读写({@code pread/pwrite}),
+ * 线程来自 {@link Builder#executor} 指定的线程池, 没有指定时每次复制临时创建一个线程池, 复制完成后关闭
+ * 复制过程中源文件被截断时抛出 {@link IOException}, 不会静默地少复制
+ * 可选在复制完成后比较源文件与目标文件的 CRC32C, 每次复制返回 {@link CopyResult}(字节数、耗时、吞吐量)
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class FileCopier {
+    public static final int DEFAULT_BUFFER_SIZE = Constants.KB * Constants.KB;
+    public static final long DEFAULT_SMALL_FILE_THRESHOLD = 64L * Constants.KB;
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 256L * Constants.KB * Constants.KB;
+
+    /**
+     * 默认配置: {@link Strategy#AUTO}, 覆盖已存在的目标文件, 不校验
+     */
+    public static final FileCopier DEFAULT = builder().build();
+
+    private final Strategy strategy;
+    private final int bufferSize;
+    private final long smallFileThreshold;
+    private final long parallelThreshold;
+    private final int parallelism;
+    private final boolean verifyChecksum;
+    private final boolean replaceExisting;
+    private final ExecutorService executor;
+
+    public enum Strategy {
+        /**
+         * 按文件大小选择
+         */
+        AUTO,
+        /**
+         * {@link Files#copy}
+         */
+        FILES_COPY,
+        /**
+         * {@link FileChannel#transferTo}
+         */
+        TRANSFER,
+        /**
+         * 直接缓冲区读写
+         */
+        BUFFERED,
+        /**
+         * 多线程按区间位置读写
+         */
+        PARALLEL
+    }
+
+    /**
+     * 一次复制的结果
+     *
+     * @param source       源文件
+     * @param target       目标文件
+     * @param strategy     实际使用的复制方式
+     * @param bytes        复制的字节数
+     * @param elapsedNanos 耗时(纳秒), 包括校验
+     * @param checksum     CRC32C, 未开启校验时为 null
+     */
+    public record CopyResult(Path source, Path target, Strategy strategy, long bytes, long elapsedNanos,
+                             String checksum) {
+        /**
+         * @return 吞吐量(字节/秒)
+         */
+        public double throughput() {
+            return bytes * 1e9 / Math.max(elapsedNanos, 1L);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s -> %s, strategy=%s, size=%s, elapsed=%dms, throughput=%s/s", source, target,
+                    strategy, ByteUnitConverter.convert(bytes), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    ByteUnitConverter.convert((long) throughput()));
+        }
+    }
+
+    private FileCopier(Builder builder) {
+        this.strategy = builder.strategy;
+        this.bufferSize = builder.bufferSize;
+        this.smallFileThreshold = builder.smallFileThreshold;
+        this.parallelThreshold = builder.parallelThreshold;
+        this.parallelism = builder.parallelism;
+        this.verifyChecksum = builder.verifyChecksum;
+        this.replaceExisting = builder.replaceExisting;
+        this.executor = builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 复制文件
+     *
+     * @param source 源文件
+     * @param target 目标文件, 父目录需要存在
+     * @return 复制结果; 与 {@link Files#copy} 一样, 源文件和目标文件是同一个文件(包括通过符号链接)时不做任何操作, 复制的字节数为 0
+     * @throws IOException 复制失败或校验不一致
+     */
+    public CopyResult copy(Path source, Path target) throws IOException {
+        long start = System.nanoTime();
+        long size = Files.size(source);
+        Strategy actual = resolve(size);
+        // 打开目标文件时会截断, 同一个文件时源文件的内容会丢失
+        if (Files.exists(target) && Files.isSameFile(source, target)) {
+            log.debug("{} 与 {} 是同一个文件, 跳过复制", source, target);
+            return new CopyResult(source, target, actual, 0, System.nanoTime() - start, null);
+        }
+        switch (actual) {
+            case FILES_COPY -> {
+                CopyOption[] options = replaceExisting
+                        ? new CopyOption[]{StandardCopyOption.REPLACE_EXISTING} : new CopyOption[0];
+                Files.copy(source, target, options);
+            }
+            case PARALLEL -> copyParallel(source, target, size);
+            default -> {
+                try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(target, writeOptions())) {
+                    if (actual == Strategy.TRANSFER) {
+                        copyTransfer(in, out, size);
+                    } else {
+                        copyBuffered(in, out, 0, size, true);
+                    }
+                }
+            }
+        }
+        String checksum = verifyChecksum ? verify(source, target) : null;
+        CopyResult result = new CopyResult(source, target, actual, size, System.nanoTime() - start, checksum);
+        log.debug("复制完成, {}", result);
+        return result;
+    }
+
+    private Strategy resolve(long size) {
+        if (strategy != Strategy.AUTO) {
+            return strategy;
+        }
+        if (size < smallFileThreshold) {
+            return Strategy.FILES_COPY;
+        }
+        if (size >= parallelThreshold && parallelism > 1) {
+            return Strategy.PARALLEL;
+        }
+        return Strategy.TRANSFER;
+    }
+
+    private OpenOption[] writeOptions() {
+        if (replaceExisting) {
+            return new OpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING};
+        }
+        return new OpenOption[]{StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE};
+    }
+
+    private void copyTransfer(FileChannel in, FileChannel out, long size) throws IOException {
+        long position = 0;
+        while (position < size) {
+            long transferred = in.transferTo(position, size - position, out);
+            if (transferred <= 0) {
+                // 文件被截断, 或者当前平台/文件系统不支持内核拷贝
+                copyBuffered(in, out, position, size - position, true);
+                return;
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * 使用 {@link BufferPool} 中的直接缓冲区按位置读写 {@code [position, position + count)}
+     * 池中的缓冲区按线程缓存, 避免每次复制都分配堆外内存
+     *
+     * @param threadCache 是否使用当前线程的本地缓存, 临时创建的工作线程结束后本地缓存中的缓冲区无法复用, 应该传入 false
+     * @throws IOException 读到源文件末尾时仍未复制完, 即源文件在复制过程中被截断
+     */
+    private void copyBuffered(FileChannel in, FileChannel out, long position, long count,
+                              boolean threadCache) throws IOException {
+        try (BufferPool.Lease<ByteBuffer> lease = threadCache
+                ? BufferPool.DEFAULT.direct(bufferSize) : BufferPool.DEFAULT.sharedDirect(bufferSize)) {
+            ByteBuffer buffer = lease.get();
+            long end = position + count;
+            while (position < end) {
+                buffer.clear();
+                // 池中的缓冲区可能大于 bufferSize
+                buffer.limit((int) Math.min(bufferSize, end - position));
+                int read = in.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException(String.format("source truncated at position %d, expected %d bytes",
+                            position, end));
+                }
+                buffer.flip();
+                long writePosition = position;
+                while (buffer.hasRemaining()) {
+                    writePosition += out.write(buffer, writePosition);
+                }
+                position += read;
+            }
+        }
+    }
+
+    private void copyParallel(Path source, Path target, long size) throws IOException {
+        // 每个区间至少一个缓冲区大小, 并按缓冲区大小对齐
+        long rangeSize = Math.max((size + parallelism - 1) / parallelism, bufferSize);
+        rangeSize = (rangeSize + bufferSize - 1) / bufferSize * bufferSize;
+        int ranges = (int) ((size + rangeSize - 1) / rangeSize);
+        ExecutorService copiers = executor != null ? executor : ThreadPoolBuilder.builder(ranges)
+                .corePoolSize(parallelism)
+                .maxPoolSize(parallelism)
+                .threadPoolName("file-copier")
+                .build();
+        List<Future<?>> futures = new ArrayList<>(ranges);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, writeOptions())) {
+            for (int i = 0; i < ranges; i++) {
+                long position = i * rangeSize;
+                long count = Math.min(rangeSize, size - position);
+                futures.add(copiers.submit(() -> {
+                    // 外部的线程池是长期存在的, 可以使用线程的本地缓存
+                    copyBuffered(in, out, position, count, copiers == executor);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            if (copiers == executor) {
+                // 外部的线程池不关闭, 只取消未完成的区间
+                futures.forEach(future -> future.cancel(true));
+            } else {
+                copiers.shutdownNow();
+            }
+        }
+    }
+
+    private static String verify(Path source, Path target) throws IOException {
+        String expected = crc32c(source);
+        String actual = crc32c(target);
+        if (!expected.equals(actual)) {
+            throw new IOException(String.format("checksum mismatch after copying %s to %s: %s != %s",
+                    source, target, expected, actual));
+        }
+        return expected;
+    }
+
+    private static String crc32c(Path path) throws IOException {
+        return com.google.common.io.Files.asByteSource(path.toFile()).hash(Hashing.crc32c()).toString();
+    }
+
+    public static class Builder {
+        private Strategy strategy = Strategy.AUTO;
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+        private long smallFileThreshold = DEFAULT_SMALL_FILE_THRESHOLD;
+        private long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private boolean verifyChecksum = false;
+        private boolean replaceExisting = true;
+        private ExecutorService executor;
+
+        public Builder strategy(Strategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        public Builder bufferSize(int bufferSize) {
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("bufferSize must be greater than 0");
+            }
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public Builder smallFileThreshold(long smallFileThreshold) {
+            this.smallFileThreshold = smallFileThreshold;
+            return this;
+        }
+
+        public Builder parallelThreshold(long parallelThreshold) {
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be greater than 0");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder verifyChecksum(boolean verifyChecksum) {
+            this.verifyChecksum = verifyChecksum;
+            return this;
+        }
+
+        public Builder replaceExisting(boolean replaceExisting) {
+            this.replaceExisting = replaceExisting;
+            return this;
+        }
+
+        /**
+         * @param executor 多线程复制使用的线程池, 由调用方负责关闭; 不指定时每次多线程复制临时创建线程池,
+         *                 频繁复制大文件时建议指定
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public FileCopier build() {
+            return new FileCopier(this);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package cn.qingweico.io;
+
+import cn.qingweico.convert.ByteUnitConverter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 并行删除 / 复制整棵目录树
+ * 与 {@link ParallelFileWalker} 一样每个目录是一个 {@link ForkJoinPool} 任务, 子目录列出后立即 fork;
+ * 同一个目录下的文件按 {@link #FILE_BATCH_SIZE} 个一批再拆成子任务, 单个目录下有大量文件时也能并行;
+ * 并发度由 {@link ForkJoinPool} 的 parallelism 限制
+ * - 删除: 先并行删除所有子项, 全部完成后再删除目录本身; 符号链接只删除链接, 不会进入链接指向的目录
+ * - 复制: 每个文件使用单线程的 {@link #COPIER} 复制(一般的文件由内核完成拷贝, 大文件也不会再创建线程池),
+ * 并发只来自目录树的并行, 总并发度不超过 parallelism; 保留修改时间; 符号链接按原样复制链接本身
+ * - 进度通过 {@link Progress} 的原子计数器暴露, 调用方可以在另一个线程中轮询
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class FileTree {
+    /**
+     * 一个子任务处理的文件数
+     */
+    static final int FILE_BATCH_SIZE = 256;
+    /**
+     * 文件已经由 {@link ForkJoinPool} 并行复制, 单个文件不再按区间多线程复制, 避免在工作线程中嵌套线程池
+     */
+    private static final FileCopier COPIER = FileCopier.builder().parallelism(1).build();
+
+    private FileTree() {
+    }
+
+    /**
+     * 进度计数器, 可以在操作进行中从其他线程读取
+     */
+    public static final class Progress {
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong directories = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        /**
+         * @return 已处理的文件(包括符号链接)数
+         */
+        public long files() {
+            return files.get();
+        }
+
+        /**
+         * @return 已处理的目录数
+         */
+        public long directories() {
+            return directories.get();
+        }
+
+        /**
+         * @return 已复制 / 删除的文件字节数
+         */
+        public long bytes() {
+            return bytes.get();
+        }
+
+        /**
+         * @return 失败的文件和目录数, 失败不会中断其他文件的处理
+         */
+        public long failures() {
+            return failures.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("files=%d, directories=%d, bytes=%s, failures=%d",
+                    files(), directories(), ByteUnitConverter.convert(bytes()), failures());
+        }
+    }
+
+    /**
+     * 并行删除文件或目录(递归删除目录下所有内容)
+     *
+     * @param root        文件或目录, 不存在时直接返回
+     * @param parallelism 并发度
+     * @return 进度
+     */
+    public static Progress delete(Path root, int parallelism) {
+        Progress progress = new Progress();
+        delete(root, parallelism, progress);
+        return progress;
+    }
+
+    /**
+     * 并行删除文件或目录(递归删除目录下所有内容)
+     *
+     * @param root        文件或目录, 不存在时直接返回
+     * @param parallelism 并发度
+     * @param progress    进度计数器
+     */
+    public static void delete(Path root, int parallelism, Progress progress) {
+        BasicFileAttributes attributes = readAttributes(root);
+        if (attributes == null) {
+            return;
+        }
+        if (!attributes.isDirectory()) {
+            deleteFile(root, attributes, progress);
+            return;
+        }
+        invoke(new DeleteDirectoryTask(root, progress), parallelism);
+        log.info("删除 {} 完成, {}", root, progress);
+    }
+
+    /**
+     * 并行复制目录树, 目标中已存在的文件会被覆盖
+     *
+     * @param source      源目录
+     * @param target      目标目录, 不存在时自动创建
+     * @param parallelism 并发度
+     * @return 进度
+     */
+    public static Progress copy(Path source, Path target, int parallelism) {
+        Progress progress = new Progress();
+        copy(source, target, parallelism, progress);
+        return progress;
+    }
+
+    /**
+     * 并行复制目录树, 目标中已存在的文件会被覆盖
+     *
+     * @param source      源目录
+     * @param target      目标目录, 不存在时自动创建
+     * @param parallelism 并发度
+     * @param progress    进度计数器
+     */
+    public static void copy(Path source, Path target, int parallelism, Progress progress) {
+        if (!Files.isDirectory(source)) {
+            throw new UncheckedIOException(new IOException(String.format("%s is not a directory", source)));
+        }
+        if (target.toAbsolutePath().normalize().startsWith(source.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException(String.format("target %s must not be inside source %s", target, source));
+        }
+        invoke(new CopyDirectoryTask(source, target, progress), parallelism);
+        log.info("复制 {} -> {} 完成, {}", source, target, progress);
+    }
+
+    private static void invoke(RecursiveAction task, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(String.format("parallelism must be greater than 0, but was %d", parallelism));
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void deleteFile(Path path, BasicFileAttributes attributes, Progress progress) {
+        try {
+            Files.deleteIfExists(path);
+            progress.files.incrementAndGet();
+            progress.bytes.addAndGet(attributes.size());
+            log.debug("删除文件 ====> {}", path);
+        } catch (IOException e) {
+            progress.failures.incrementAndGet();
+            log.warn("删除文件 {} 失败, {}", path, e.getMessage());
+        }
+    }
+
+    private static void copyFile(Path source, Path target, BasicFileAttributes attributes, Progress progress) {
+        try {
+            if (attributes.isSymbolicLink()) {
+                Files.copy(source, target, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING);
+                progress.files.incrementAndGet();
+                return;
+            }
+            FileCopier.CopyResult result = COPIER.copy(source, target);
+            progress.bytes.addAndGet(result.bytes());
+            Files.setLastModifiedTime(target, attributes.lastModifiedTime());
+            progress.files.incrementAndGet();
+        } catch (IOException e) {
+            progress.failures.incrementAndGet();
+            log.warn("复制文件 {} 失败, {}", source, e.getMessage());
+        }
+    }
+
+    /**
+     * 列出目录下的子项, 子目录交给 {@code directoryTask} 创建的任务, 文件按批交给 {@code fileBatch}
+     */
+    @SuppressWarnings("serial")
+    private abstract static class DirectoryTask extends RecursiveAction {
+        final Path dir;
+        final Progress progress;
+
+        DirectoryTask(Path dir, Progress progress) {
+            this.dir = dir;
+            this.progress = progress;
+        }
+
+        abstract RecursiveAction directoryTask(Path child);
+
+        abstract void processFile(Path child, BasicFileAttributes attributes);
+
+        /**
+         * 所有子项处理完成后调用
+         */
+        abstract void afterChildren();
+
+        @Override
+        protected void compute() {
+            List<RecursiveAction> subtasks = new ArrayList<>();
+            List<Path> batch = new ArrayList<>();
+            List<BasicFileAttributes> batchAttributes = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                for (Path child : children) {
+                    BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        RecursiveAction subtask = directoryTask(child);
+                        subtask.fork();
+                        subtasks.add(subtask);
+                        continue;
+                    }
+                    batch.add(child);
+                    batchAttributes.add(attributes);
+                    if (batch.size() == FILE_BATCH_SIZE) {
+                        RecursiveAction subtask = fileBatch(batch, batchAttributes);
+                        subtask.fork();
+                        subtasks.add(subtask);
+                        batch = new ArrayList<>();
+                        batchAttributes = new ArrayList<>();
+                    }
+                }
+            } catch (IOException e) {
+                progress.failures.incrementAndGet();
+                log.warn("读取目录 {} 失败, {}", dir, e.getMessage());
+            }
+            // 最后一批在当前线程处理
+            for (int i = 0; i < batch.size(); i++) {
+                processFile(batch.get(i), batchAttributes.get(i));
+            }
+            for (RecursiveAction subtask : subtasks) {
+                subtask.join();
+            }
+            afterChildren();
+        }
+
+        private RecursiveAction fileBatch(List<Path> files, List<BasicFileAttributes> attributes) {
+            return new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    for (int i = 0; i < files.size(); i++) {
+                        processFile(files.get(i), attributes.get(i));
+                    }
+                }
+            };
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class DeleteDirectoryTask extends DirectoryTask {
+
+        DeleteDirectoryTask(Path dir, Progress progress) {
+            super(dir, progress);
+        }
+
+        @Override
+        RecursiveAction directoryTask(Path child) {
+            return new DeleteDirectoryTask(child, progress);
+        }
+
+        @Override
+        void processFile(Path child, BasicFileAttributes attributes) {
+            deleteFile(child, attributes, progress);
+        }
+
+        @Override
+        void afterChildren() {
+            // 删除空的文件夹
+            try {
+                Files.deleteIfExists(dir);
+                progress.directories.incrementAndGet();
+                log.debug("删除文件目录 ====> {}", dir);
+            } catch (IOException e) {
+                progress.failures.incrementAndGet();
+                log.warn("删除目录 {} 失败, {}", dir, e.getMessage());
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class CopyDirectoryTask extends DirectoryTask {
+        private final Path target;
+
+        CopyDirectoryTask(Path dir, Path target, Progress progress) {
+            super(dir, progress);
+            this.target = target;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                Files.createDirectories(target);
+            } catch (IOException e) {
+                progress.failures.incrementAndGet();
+                log.warn("创建目录 {} 失败, {}", target, e.getMessage());
+                return;
+            }
+            super.compute();
+        }
+
+        @Override
+        RecursiveAction directoryTask(Path child) {
+            return new CopyDirectoryTask(child, target.resolve(child.getFileName().toString()), progress);
+        }
+
+        @Override
+        void processFile(Path child, BasicFileAttributes attributes) {
+            copyFile(child, target.resolve(child.getFileName().toString()), attributes, progress);
+        }
+
+        @Override
+        void afterChildren() {
+            progress.directories.incrementAndGet();
+            try {
+                Files.setLastModifiedTime(target, Files.getLastModifiedTime(dir));
+            } catch (IOException e) {
+                log.debug("设置目录 {} 的修改时间失败, {}", target, e.getMessage());
+            }
+        }
+    }
+}
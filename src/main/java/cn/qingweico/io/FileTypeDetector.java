@@ -0,0 +1,189 @@
+package cn.qingweico.io;
+
+import cn.qingweico.constants.Constants;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.tika.mime.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * 文件类型检测
+ * 只读取文件开头的 {@link #HEADER_SIZE} 个字节, 一次得到归档类型、压缩类型、Tika MIME 类型和 {@link FileMagic},
+ * 代替分别调用 {@link FileUtils#isArchiveFile}、{@link FileUtils#isCompressFile}、{@link FileUtils#isIgnoredFile}
+ * 各自打开并读取文件; 按路径检测的结果以 路径 + 修改时间 + 大小 缓存, 文件未变化时不会再次读取
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+public final class FileTypeDetector {
+    /**
+     * 检测读取的最大字节数, tar 头部需要 512 字节, OOXML 的判断依赖第一个 zip entry 的名称
+     */
+    public static final int HEADER_SIZE = 8 * Constants.KB;
+    private static final int CACHE_MAXIMUM_SIZE = 100_000;
+
+    private static final Cache<Path, CachedType> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_MAXIMUM_SIZE)
+            .build();
+
+    private FileTypeDetector() {
+    }
+
+    /**
+     * 一次检测的结果
+     *
+     * @param archiveType    {@link ArchiveStreamFactory#detect} 的结果, 不是归档文件时为 null
+     * @param compressorType {@link CompressorStreamFactory#detect} 的结果, 不是压缩文件时为 null
+     * @param mimeType       Tika 检测的 MIME 类型
+     * @param fileMagic      POI 检测的文件签名
+     */
+    public record FileType(String archiveType, String compressorType, String mimeType, FileMagic fileMagic) {
+        static final FileType EMPTY = new FileType(null, null, MediaType.OCTET_STREAM.toString(), FileMagic.UNKNOWN);
+
+        /**
+         * @return 是否为需要忽略的文件(PDF, PPTX, DOCX, XLSX 等)
+         */
+        public boolean isIgnored() {
+            if (fileMagic == FileMagic.OOXML) {
+                // Java Archive(jar) 也是基于ZIP格式, 也会返回FileMagic.OOXML
+                if (WellKnownMimeType.APPLICATION_ZIP.getString().equals(mimeType)) {
+                    return false;
+                }
+                // 可能是PPTX, DOCX或XLSX(这几种文件也忽略)
+                return "application/x-tika-ooxml".equals(mimeType);
+            }
+            return FileUtils.ignoredFileMagics.contains(fileMagic);
+        }
+
+        /**
+         * PPTX文件虽然本质上是ZIP格式, 但是使用ZipInputStream处理不了, 忽略
+         *
+         * @return 是否为归档文件
+         */
+        public boolean isArchive() {
+            return archiveType != null && FileUtils.archiveFileTypes.contains(archiveType) && !isIgnored();
+        }
+
+        /**
+         * @return 是否为压缩文件
+         */
+        public boolean isCompress() {
+            return compressorType != null && FileUtils.compressFileTypes.contains(compressorType);
+        }
+    }
+
+    private record CachedType(long lastModified, long size, FileType type) {
+    }
+
+    /**
+     * 检测文件类型, 文件的修改时间和大小没有变化时直接返回缓存的结果
+     *
+     * @param path 文件路径
+     * @return 检测结果
+     * @throws IOException 读取文件失败
+     */
+    public static FileType detect(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+        CachedType cached = CACHE.getIfPresent(key);
+        if (cached != null && cached.lastModified() == lastModified && cached.size() == size) {
+            return cached.type();
+        }
+        FileType type;
+        try (InputStream in = Files.newInputStream(key)) {
+            type = detectHeader(in);
+        }
+        CACHE.put(key, new CachedType(lastModified, size, type));
+        return type;
+    }
+
+    /**
+     * 检测输入流的类型, 支持 mark/reset 的流检测后会回到原来的位置, 否则会消费掉开头的 {@link #HEADER_SIZE} 个字节
+     *
+     * @param in 输入流
+     * @return 检测结果
+     * @throws IOException 读取失败
+     */
+    public static FileType detect(InputStream in) throws IOException {
+        if (!in.markSupported()) {
+            return detectHeader(in);
+        }
+        in.mark(HEADER_SIZE);
+        try {
+            return detectHeader(in);
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * 检测已经读取到内存中的文件头
+     *
+     * @param header 文件开头的字节
+     * @param length 有效长度
+     * @return 检测结果
+     */
+    public static FileType detect(byte[] header, int length) {
+        if (length <= 0) {
+            return FileType.EMPTY;
+        }
+        byte[] prefix = length == header.length ? header : Arrays.copyOf(header, length);
+        return new FileType(archiveType(prefix), compressorType(prefix),
+                FileUtils.tika.detect(prefix), FileMagic.valueOf(prefix));
+    }
+
+    /**
+     * 移除某个文件的缓存
+     *
+     * @param path 文件路径
+     */
+    public static void invalidate(Path path) {
+        CACHE.invalidate(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clearCache() {
+        CACHE.invalidateAll();
+    }
+
+    private static FileType detectHeader(InputStream in) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        return detect(header, IOUtils.read(in, header));
+    }
+
+    private static String archiveType(byte[] prefix) {
+        try {
+            return ArchiveStreamFactory.detect(new ByteArrayInputStream(prefix));
+        } catch (ArchiveException e) {
+            // No Archiver found for the stream signature, ignored
+            return null;
+        }
+    }
+
+    private static String compressorType(byte[] prefix) {
+        try {
+            return CompressorStreamFactory.detect(new ByteArrayInputStream(prefix));
+        } catch (CompressorException e) {
+            // No Compressor found for the stream signature, ignored
+            return null;
+        }
+    }
+}
@@ -8,32 +8,34 @@ import cn.qingweico.constants.FileSuffixConstants;
 import cn.qingweico.constants.Symbol;
 import cn.qingweico.convert.ByteUnitConverter;
 import cn.qingweico.convert.TimeUnitConverter;
+import cn.qingweico.encrypt.Base64Convert;
 import cn.qingweico.model.*;
 import cn.qingweico.network.NetworkUtils;
+import cn.qingweico.supplier.Generator;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.MoreFiles;
 import com.google.common.io.Resources;
-import io.rsocket.metadata.WellKnownMimeType;
+import io.undertow.io.BufferWritableOutputStream;
 import jodd.util.StringPool;
-import jodd.util.StringUtil;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
-import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
-import org.apache.commons.io.IOExceptionList;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.StringBuilderWriter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.tika.Tika;
 import org.jetbrains.annotations.NotNull;
-import org.springframework.util.FastByteArrayOutputStream;
+import org.springframework.http.HttpHeaders;
 import org.springframework.util.FileCopyUtils;
-import org.springframework.util.StreamUtils;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -43,7 +45,9 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -53,12 +57,17 @@ import java.nio.file.attribute.FileAttribute;
 import java.nio.file.spi.FileSystemProvider;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -88,14 +97,37 @@ public final class FileUtils {
     static Set<String> compressFileTypes = new CompressorStreamFactory().getInputStreamCompressorNames();
 
     static Tika tika = new Tika();
+
+    /**
+     * {@link #readBuffer(Path)} 使用内存映射的最小文件大小
+     */
+    public static final long MAPPED_READ_THRESHOLD = (long) Constants.KB * Constants.KB;
+
+    private static final int MERGE_OUTPUT_BUFFER_SIZE = 64 * Constants.KB;
+
+    private static final FileCopier BUFFERED_COPIER = FileCopier.builder()
+            .strategy(FileCopier.Strategy.BUFFERED)
+            .build();
+    private static final FileCopier TRANSFER_COPIER = FileCopier.builder()
+            .strategy(FileCopier.Strategy.TRANSFER)
+            .build();
+    /**
+     * 与 {@link Files#copy(Path, Path, CopyOption...)} 一致, 目标文件已存在时失败
+     */
+    private static final FileCopier FILES_COPIER = FileCopier.builder()
+            .strategy(FileCopier.Strategy.FILES_COPY)
+            .replaceExisting(false)
+            .build();
     // add more...
     static List<FileMagic> ignoredFileMagics = List.of(FileMagic.PDF, FileMagic.OOXML);
 
     /**
      * Read file and put in the ArrayList
+     * 文件通过 {@link MappedFileTokenizer} 按块映射后逐个读取单词, 不会把整个文件读成一个 {@link String}
      *
      * @param filename {@code String} filename
      * @param list     {@code ArrayList<String>>}
+     * @see MappedFileTokenizer 超大文件请直接使用并行的 {@link MappedFileTokenizer#tokenize} 或 {@link MappedFileTokenizer#forEach}
      */
     public static void readFileToArrayList(String filename, ArrayList<String> list) {
 
@@ -107,80 +139,55 @@ public final class FileUtils {
             log.error("list is null");
             return;
         }
-        Scanner scanner;
-        try {
-            File file = new File(filename);
-            if (file.exists()) {
-                FileInputStream fis = new FileInputStream(file);
-                scanner = new Scanner(new BufferedInputStream(fis), StandardCharsets.UTF_8);
-                scanner.useLocale(Locale.ENGLISH);
-            } else {
-                log.error("file {} is not exist", filename);
-                return;
-            }
-
-        } catch (IOException ioe) {
-            log.error("Cannot open {}", filename);
+        File file = new File(filename);
+        if (!file.exists()) {
+            log.error("file {} is not exist", filename);
             return;
         }
-
-        if (scanner.hasNextLine()) {
-            String contents = scanner.useDelimiter("\\A").next();
-            int start = firstCharacterIndex(contents, 0);
-            for (int i = start + 1; i <= contents.length(); ) {
-                if (i == contents.length() || !Character.isLetter(contents.charAt(i))) {
-                    String word = contents.substring(start, i).toLowerCase();
-                    list.add(word);
-                    start = firstCharacterIndex(contents, i);
-                    i = start + 1;
-                } else {
-                    i++;
-                }
-            }
+        try (Stream<String> words = new MappedFileTokenizer(file.toPath()).stream()) {
+            words.forEachOrdered(list::add);
+        } catch (UncheckedIOException e) {
+            log.error("Cannot open {}", filename);
         }
     }
 
     /**
-     * 返回字符串中第一个字母的索引
+     * 经过用户态缓冲区复制, 使用 {@link FileCopier.Strategy#BUFFERED}(直接缓冲区)
      *
-     * @param s     字符串
-     * @param start 起始位置
-     * @return "13llo, 0" => 2
+     * @param source 源文件
+     * @param target 目标文件
      */
-    private static int firstCharacterIndex(String s, int start) {
-
-        for (int i = start; i < s.length(); i++) {
-            if (Character.isLetter(s.charAt(i))) {
-                return i;
-            }
-        }
-        return s.length();
+    public static void copyFileByStream(File source, File target) {
+        copy(BUFFERED_COPIER, source.toPath(), target.toPath());
     }
 
+    /**
+     * 由内核完成复制, 使用 {@link FileCopier.Strategy#TRANSFER}
+     *
+     * @param source 源文件
+     * @param target 目标文件
+     */
+    public static void copyFileByChannel(File source, File target) {
+        copy(TRANSFER_COPIER, source.toPath(), target.toPath());
+    }
 
-    public static void copyFileByStream(File source, File target) {
-        try (InputStream is = new FileInputStream(source); OutputStream os = new FileOutputStream(target)) {
-            byte[] buffer = new byte[Constants.KB];
-            int length;
-            while ((length = is.read(buffer)) > 0) {
-                os.write(buffer, 0, length);
-            }
-        } catch (IOException e) {
-            log.error(e.getMessage(), e);
-        }
+    /**
+     * 使用 {@link FileCopier#DEFAULT} 按文件大小选择复制方式
+     *
+     * @param source 源文件
+     * @param target 目标文件, 已存在时覆盖
+     * @return 复制结果, 失败时返回 null
+     */
+    public static FileCopier.CopyResult copy(Path source, Path target) {
+        return copy(FileCopier.DEFAULT, source, target);
     }
 
-    public static void copyFileByChannel(File source, File target) {
-        try (FileInputStream fis = new FileInputStream(source); FileOutputStream fos = new FileOutputStream(target)) {
-            FileChannel sourceChannel = fis.getChannel();
-            FileChannel targetChannel = fos.getChannel();
-            for (long count = sourceChannel.size(); count > 0; ) {
-                long transferred = sourceChannel.transferTo(sourceChannel.position(), count, targetChannel);
-                sourceChannel.position(sourceChannel.position() + transferred);
-                count -= transferred;
-            }
+    private static FileCopier.CopyResult copy(FileCopier copier, Path source, Path target) {
+        try {
+            return copier.copy(source, target);
         } catch (IOException e) {
             log.error(e.getMessage(), e);
+            return null;
         }
     }
 
@@ -195,11 +202,7 @@ public final class FileUtils {
      * @param target {@link Path}
      */
     public static void fileCopy(Path source, Path target) {
-        try {
-            Files.copy(source, target);
-        } catch (IOException e) {
-            log.error(e.getMessage(), e);
-        }
+        copy(FILES_COPIER, source, target);
     }
 
     /**
@@ -240,10 +243,17 @@ public final class FileUtils {
     /**
      * 快速遍历文件夹并打印出其中所有的文件
      *
+     * 目录已被 {@link DirectoryIndex} 索引时直接从索引中读取
+     *
      * @param directory 文件夹名称
      * @see #fileList(File) 使用递归
      */
     public static void fileList(String directory) {
+        DirectoryIndex index = DirectoryIndex.find(Paths.get(directory));
+        if (index != null) {
+            index.list(Paths.get(directory)).forEach(System.out::println);
+            return;
+        }
         try (Stream<Path> pathStream = Files.walk(Paths.get(directory))) {
             pathStream.filter(Files::isRegularFile).forEach(System.out::println);
         } catch (IOException e) {
@@ -345,6 +355,8 @@ public final class FileUtils {
 
     /**
      * 过滤目录下指定后缀的文件, 并查找包含目标字符串的文件
+     * 目录已被 {@link DirectoryIndex} 索引时按后缀从索引中查找文件, 只读取匹配的文件
+     * 文件内容由 {@link MultiPatternSearcher} 多线程按字节查找, 每个文件找到第一处匹配后即停止
      *
      * @param directory  目录路径
      * @param fileSuffix 文件后缀 {@link FileSuffixConstants}
@@ -352,23 +364,54 @@ public final class FileUtils {
      * @throws RuntimeException 如果遍历文件时发生IO异常
      */
     public static void filterFileByTarget(String directory, String fileSuffix, String target) {
-        try {
-            Files.walkFileTree(Paths.get(directory), new FileVisitor<>() {
-                @NotNull
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, @NotNull BasicFileAttributes attrs) {
-                    return FileVisitResult.CONTINUE;
-                }
+        List<Path> files = listBySuffix(Paths.get(directory), fileSuffix);
+        if (StringUtils.isEmpty(target)) {
+            // 空串包含在任何文件中
+            files.forEach(System.out::println);
+            return;
+        }
+        MultiPatternSearcher.builder()
+                .patterns(target)
+                .firstMatchPerFile(true)
+                .build()
+                .search(files, match -> System.out.println(match.file()));
+    }
+
+    /**
+     * 在目录下指定后缀的文件中同时查找多个目标字符串(类似 grep -F), 每个文件只扫描一遍
+     *
+     * @param directory  目录路径
+     * @param fileSuffix 文件后缀 {@link FileSuffixConstants}
+     * @param consumer   每处匹配(文件、字节偏移、行号、目标字符串)的回调, 在当前线程中按文件路径的顺序调用
+     * @param targets    目标查找字符串
+     * @return 扫描的文件数、字节数、匹配数和耗时
+     * @throws RuntimeException 如果遍历文件时发生IO异常
+     */
+    public static MultiPatternSearcher.Result filterFileByTargets(String directory, String fileSuffix,
+                                                                  Consumer<MultiPatternSearcher.Match> consumer,
+                                                                  String... targets) {
+        return MultiPatternSearcher.builder()
+                .patterns(targets)
+                .build()
+                .search(listBySuffix(Paths.get(directory), fileSuffix), consumer);
+    }
 
+    /**
+     * @return 目录下以 {@code fileSuffix} 结尾的文件, 按路径排序, 目录已被索引时从索引中查找
+     */
+    private static List<Path> listBySuffix(Path directory, String fileSuffix) {
+        DirectoryIndex index = DirectoryIndex.find(directory);
+        if (index != null) {
+            return index.listBySuffix(directory, fileSuffix);
+        }
+        try {
+            List<Path> files = new ArrayList<>();
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
                 @NotNull
                 @Override
-                public FileVisitResult visitFile(Path file, @NotNull BasicFileAttributes attrs) throws IOException {
+                public FileVisitResult visitFile(Path file, @NotNull BasicFileAttributes attrs) {
                     if (file.toString().endsWith(fileSuffix)) {
-                        String context = Files.readString(file);
-                        if (context.contains(target)) {
-                            System.out.println(file);
-                        }
-
+                        files.add(file);
                     }
                     return FileVisitResult.CONTINUE;
                 }
@@ -378,14 +421,9 @@ public final class FileUtils {
                 public FileVisitResult visitFileFailed(Path file, @NotNull IOException exc) {
                     return FileVisitResult.CONTINUE;
                 }
-
-                @NotNull
-                @Override
-                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-                    return FileVisitResult.CONTINUE;
-                }
-
             });
+            files.sort(null);
+            return files;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -399,12 +437,10 @@ public final class FileUtils {
      */
     public static byte[] read(File in) {
         try {
-            try (BufferedInputStream bf = new BufferedInputStream(new FileInputStream(in))) {
-                byte[] data = new byte[bf.available()];
-                int read = bf.read(data);
-                log.info("文件 {} 大小为 {}", in.getAbsolutePath(), ByteUnitConverter.convert(read));
-                return data;
-            }
+            // available() 只是不阻塞可读的估计值, 不能用来确定文件大小
+            byte[] data = Files.readAllBytes(in.toPath());
+            log.info("文件 {} 大小为 {}", in.getAbsolutePath(), ByteUnitConverter.convert(data.length));
+            return data;
         } catch (IOException e) {
             log.error(e.getMessage(), e);
         }
@@ -422,6 +458,80 @@ public final class FileUtils {
         return read(new File(in).getAbsoluteFile());
     }
 
+    /**
+     * 读取文件为只读的 {@link ByteBuffer}
+     * 小于 {@link #MAPPED_READ_THRESHOLD} 的文件直接读到堆内存(映射的建立和回收开销比拷贝更大),
+     * 其余文件使用内存映射, 不拷贝到堆上, 可以直接在缓冲区上解析
+     *
+     * @param path 文件路径
+     * @return 只读的缓冲区
+     * @throws IOException 读取失败或文件超过 {@link Integer#MAX_VALUE} 字节(请使用 {@link #readBuffers(Path)})
+     */
+    public static ByteBuffer readBuffer(Path path) throws IOException {
+        long size = Files.size(path);
+        if (size < MAPPED_READ_THRESHOLD) {
+            return ByteBuffer.wrap(Files.readAllBytes(path)).asReadOnlyBuffer();
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(String.format("文件 %s 大小为 %s, 超过单个缓冲区的上限, 请使用 readBuffers",
+                    path, ByteUnitConverter.convert(size)));
+        }
+        return map(path, 0, size);
+    }
+
+    /**
+     * 读取文件为若干个只读的 {@link ByteBuffer}, 支持超过 2GB 的文件
+     *
+     * @param path 文件路径
+     * @return 按文件顺序排列的缓冲区
+     * @throws IOException 读取失败
+     * @see #readBuffers(Path, int)
+     */
+    public static List<ByteBuffer> readBuffers(Path path) throws IOException {
+        return readBuffers(path, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 读取文件为若干个只读的 {@link ByteBuffer}
+     * 小文件返回单个堆缓冲区, 大文件按 {@code segmentSize} 分段映射
+     *
+     * @param path        文件路径
+     * @param segmentSize 每段映射的最大字节数
+     * @return 按文件顺序排列的缓冲区
+     * @throws IOException 读取失败
+     */
+    public static List<ByteBuffer> readBuffers(Path path, int segmentSize) throws IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException(String.format("segment size must be greater than 0, but was %d", segmentSize));
+        }
+        long size = Files.size(path);
+        if (size < MAPPED_READ_THRESHOLD && size <= segmentSize) {
+            return List.of(ByteBuffer.wrap(Files.readAllBytes(path)).asReadOnlyBuffer());
+        }
+        List<ByteBuffer> buffers = new ArrayList<>((int) (size / segmentSize) + 1);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long position = 0; position < size; position += segmentSize) {
+                buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, size - position)));
+            }
+        }
+        return buffers;
+    }
+
+    /**
+     * 以只读方式映射文件的指定区间, 映射建立后关闭通道不影响缓冲区的使用
+     *
+     * @param path     文件路径
+     * @param position 起始偏移
+     * @param size     映射的字节数, 不能超过 {@link Integer#MAX_VALUE}
+     * @return {@link MappedByteBuffer}
+     * @throws IOException 映射失败
+     */
+    public static MappedByteBuffer map(Path path, long position, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        }
+    }
+
     /**
      * 读取文件内容为字符串
      *
@@ -430,8 +540,8 @@ public final class FileUtils {
      */
     public String copyToString(File in) {
         try (FileInputStream fis = new FileInputStream(in);
-             FastByteArrayOutputStream outputStream = new FastByteArrayOutputStream()) {
-            StreamUtils.copy(fis, outputStream);
+             PooledByteArrayOutputStream outputStream = new PooledByteArrayOutputStream()) {
+            outputStream.readFrom(fis);
             return outputStream.toString();
         } catch (IOException e) {
             log.error(e.getMessage(), e);
@@ -459,9 +569,11 @@ public final class FileUtils {
      */
     public void copy(File in, File out) {
         try (FileInputStream fis = new FileInputStream(in);
-             FastByteArrayOutputStream outputStream = new FastByteArrayOutputStream()) {
-            StreamUtils.copy(fis, outputStream);
-            Files.write(out.toPath(), outputStream.toByteArray());
+             PooledByteArrayOutputStream outputStream = new PooledByteArrayOutputStream()) {
+            outputStream.readFrom(fis);
+            try (OutputStream os = Files.newOutputStream(out.toPath())) {
+                outputStream.writeTo(os);
+            }
         } catch (IOException e) {
             log.error(e.getMessage(), e);
         }
@@ -469,16 +581,50 @@ public final class FileUtils {
 
     /**
      * 递归列出目录下所有文件
+     * 目录已被 {@link DirectoryIndex} 索引时直接从索引中读取
+     * 与 {@link Files#walk} 一样: {@code path} 是普通文件时返回该文件本身, 任何目录无法读取时抛出异常
      *
      * @param path 要遍历的目录路径
-     * @return 包含所有文件的List集合
+     * @return 包含所有文件的List集合, 按路径排序
      * @throws IOException 如果访问目录时发生IO错误
      */
     public static List<File> listFiles(String path) throws IOException {
-        try (Stream<Path> stream = Files.walk(Paths.get(path))) {
-            return stream.filter(Files::isRegularFile)
+        Path root = Paths.get(path);
+        DirectoryIndex index = DirectoryIndex.find(root);
+        if (index != null) {
+            return index.list(root).stream().map(Path::toFile).collect(Collectors.toList());
+        }
+        // 不存在时抛出 NoSuchFileException
+        BasicFileAttributes attributes = Files.readAttributes(root, BasicFileAttributes.class);
+        if (!attributes.isDirectory()) {
+            return Files.isRegularFile(root) ? new ArrayList<>(List.of(root.toFile())) : new ArrayList<>();
+        }
+        try {
+            return new ParallelFileWalker(MergeFileParam.create(), Runtime.getRuntime().availableProcessors(), true)
+                    .list(root).stream()
                     .map(Path::toFile)
                     .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 并行列出目录下所有未被排除的文件, 被排除的目录不会被遍历
+     *
+     * @param path  要遍历的目录路径
+     * @param param 排除的目录、文件名和后缀
+     * @return 包含所有文件的List集合, 按路径排序
+     * @throws IOException 如果访问目录时发生IO错误
+     * @see ParallelFileWalker
+     */
+    public static List<File> listFiles(String path, MergeFileParam param) throws IOException {
+        try {
+            return new ParallelFileWalker(param).list(Paths.get(path)).stream()
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
 
@@ -521,6 +667,7 @@ public final class FileUtils {
 
     /**
      * 删除文件或目录(递归删除目录下所有内容)
+     * 目录使用 {@link FileTree#delete} 并行删除, 并发度为 CPU 核数
      *
      * @param file 要删除的File对象
      */
@@ -528,30 +675,42 @@ public final class FileUtils {
         if (!file.exists()) {
             return;
         }
-        Consumer<File> consumer = new Consumer<>() {
-            @Override
-            public void accept(File f) {
-                String fp = f.getAbsoluteFile().toString();
-                if (f.isDirectory()) {
-                    File[] children = f.listFiles();
-                    if (children != null) {
-                        for (File child : children) {
-                            this.accept(child);
-                        }
-                    }
-                    // 删除空的文件夹
-                    if (f.delete()) {
-                        log.info("删除文件目录 ====> {}", fp);
-                    }
-                } else {
-                    // 删除文件
-                    if (f.delete()) {
-                        log.info("删除文件 ====> {}", fp);
-                    }
-                }
-            }
-        };
-        consumer.accept(file);
+        deleteTree(file.toPath(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 并行删除文件或目录(递归删除目录下所有内容), 符号链接只删除链接本身
+     *
+     * @param root        要删除的文件或目录
+     * @param parallelism 并发度
+     * @return 删除的文件数、目录数、字节数和失败数
+     */
+    public static FileTree.Progress deleteTree(Path root, int parallelism) {
+        return FileTree.delete(root, parallelism);
+    }
+
+    /**
+     * 并行复制目录树, 使用 CPU 核数的并发度
+     *
+     * @param source 源目录
+     * @param target 目标目录
+     * @return 复制的文件数、目录数、字节数和失败数
+     */
+    public static FileTree.Progress copyTree(String source, String target) {
+        return copyTree(Paths.get(source), Paths.get(target), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 并行复制目录树, 每个文件使用单线程的 {@link FileCopier} 复制: 小文件使用 {@link Files#copy}, 其余文件使用 {@link FileChannel#transferTo}
+     * 需要实时查看进度时使用 {@link FileTree#copy(Path, Path, int, FileTree.Progress)}
+     *
+     * @param source      源目录
+     * @param target      目标目录, 已存在的文件会被覆盖
+     * @param parallelism 并发度
+     * @return 复制的文件数、目录数、字节数和失败数
+     */
+    public static FileTree.Progress copyTree(Path source, Path target, int parallelism) {
+        return FileTree.copy(source, target, parallelism);
     }
 
     /**
@@ -588,30 +747,168 @@ public final class FileUtils {
 
     /**
      * 将文件以流的方式下载到客户端
+     * - 响应中带有 ETag(由文件大小和修改时间生成)和 Last-Modified, {@code If-None-Match} / {@code If-Modified-Since}
+     * 校验通过时返回 304, 不发送内容
+     * - 支持 {@code Range} 请求(断点续传): 单个区间返回 206 + Content-Range, 多个区间返回 {@code multipart/byteranges},
+     * 区间无法满足时返回 416; {@code If-Range} 与当前文件不一致时忽略 Range 返回整个文件, 解析规则见 {@link HttpRanges}
+     * - 只有容器是 Undertow 并且区间一直到文件末尾时才是零拷贝: 使用 {@link BufferWritableOutputStream#transferFrom} 由内核直接发送;
+     * 其他情况(其他容器、不到文件末尾的区间、多区间)经过 {@link BufferPool} 借出的堆上缓冲区读取后写入响应流
+     * - HEAD 请求只返回响应头
      *
      * @param filePath 要下载的文件路径
      * @param request  HttpServletRequest对象
      * @param response HttpServletResponse对象
      * @throws BusinessException 如果文件不存在或写入流失败
      */
-
-    public void downloadFileStream(String filePath, HttpServletRequest request, HttpServletResponse response) {
+    public static void downloadFileStream(String filePath, HttpServletRequest request, HttpServletResponse response) {
         File file = new File(filePath);
         if (!file.exists() || !file.isFile()) {
             throw new BusinessException("文件不存在");
         }
         String fileName = file.getName();
-        response.setContentType(request.getServletContext().getMimeType(fileName));
+        String contentType = request.getServletContext().getMimeType(fileName);
+        long size = file.length();
+        // HTTP 日期精确到秒
+        long lastModified = file.lastModified() / 1000 * 1000;
+        String etag = HttpRanges.etag(size, lastModified);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
 
         String encodeFileName = URLEncoder.encode(fileName, StandardCharsets.UTF_8);
         response.setHeader("Content-Disposition", "attachment; filename=\"" + encodeFileName + "\"");
 
-        try (FileInputStream fis = new FileInputStream(file);
+        List<HttpRanges.Range> ranges = isRangeApplicable(request, etag, lastModified)
+                ? HttpRanges.parse(request.getHeader(HttpHeaders.RANGE), size) : null;
+        if (ranges != null && ranges.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
              ServletOutputStream writer = response.getOutputStream()) {
-            IOUtils.copy(fis, writer);
+            if (ranges == null) {
+                response.setContentType(contentType);
+                response.setContentLengthLong(size);
+                if (!head) {
+                    transferToResponse(channel, 0, size, writer);
+                }
+            } else if (ranges.size() == 1) {
+                HttpRanges.Range range = ranges.get(0);
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType(contentType);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(size));
+                response.setContentLengthLong(range.length());
+                if (!head) {
+                    transferToResponse(channel, range.start(), range.length(), writer);
+                }
+            } else {
+                writeMultipartRanges(channel, ranges, size, contentType, response, writer, head);
+            }
             writer.flush();
         } catch (Exception ex) {
-            throw new BusinessException("写入流失败");
+            throw new BusinessException("写入流失败", ex);
+        }
+    }
+
+    /**
+     * {@code If-None-Match} 优先, 没有时才比较 {@code If-Modified-Since}
+     */
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return HttpRanges.noneMatchFails(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * 没有 {@code If-Range}, 或者 {@code If-Range} 中的 ETag(强比较) / 日期与当前文件一致时才处理 Range
+     */
+    private static boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        return dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+    }
+
+    /**
+     * @return 日期请求头的毫秒数, 没有或者格式错误时返回 -1
+     */
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static void writeMultipartRanges(FileChannel channel, List<HttpRanges.Range> ranges, long size,
+                                             String contentType, HttpServletResponse response,
+                                             OutputStream out, boolean head) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        String partType = contentType == null ? "application/octet-stream" : contentType;
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        long length = end.length;
+        for (HttpRanges.Range range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + partType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(size) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            partHeaders.add(partHeader);
+            length += partHeader.length + range.length();
+        }
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(length);
+        if (head) {
+            return;
+        }
+        for (int i = 0; i < ranges.size(); i++) {
+            out.write(partHeaders.get(i));
+            transferToResponse(channel, ranges.get(i).start(), ranges.get(i).length(), out);
+        }
+        out.write(end);
+    }
+
+    /**
+     * 把文件的 {@code [position, position + count)} 写入响应
+     * 区间一直到文件末尾并且输出支持 {@link BufferWritableOutputStream#transferFrom} 时交给容器零拷贝发送,
+     * 否则按位置读入池中的堆上缓冲区再写入输出流(输出流只接受 byte[], 写入通道包装时同样要经过堆上的缓冲区)
+     *
+     * @throws IOException 文件在下载过程中被截断
+     */
+    private static void transferToResponse(FileChannel channel, long position, long count,
+                                           OutputStream out) throws IOException {
+        if (position + count == channel.size() && out instanceof BufferWritableOutputStream zeroCopy) {
+            channel.position(position);
+            zeroCopy.transferFrom(channel);
+            return;
+        }
+        long end = position + count;
+        try (BufferPool.Lease<byte[]> lease = BufferPool.DEFAULT.heap(FileCopyUtils.BUFFER_SIZE)) {
+            byte[] buffer = lease.get();
+            ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            while (position < end) {
+                wrapped.clear().limit((int) Math.min(buffer.length, end - position));
+                int read = channel.read(wrapped, position);
+                if (read < 0) {
+                    throw new IOException(String.format("file truncated at position %d, expected %d bytes", position, end));
+                }
+                out.write(buffer, 0, read);
+                position += read;
+            }
         }
     }
 
@@ -623,10 +920,48 @@ public final class FileUtils {
      * @return String
      */
     public static String fileToBase64(File file) {
-        // 对字节数组Base64编码并且去掉换行符(由于JDK自带base64不会去掉换行符,导致base64格式验证失败)
+        // Base64编码并且不换行(由于JDK自带的MIME编码会换行,导致base64格式验证失败)
         // 根据RFC822规定, BASE64Encoder编码每76个字符, 还需要加上一个回车换行
         // 部分Base64编码的java库还按照这个标准实行
-        return Base64.encodeBase64String(toByteArray(file));
+        // 按编码后的长度一次分配, 文件内容分段编码, 不会先读取成完整的字节数组
+        StringBuilderWriter writer = new StringBuilderWriter((int) Math.min((file.length() + 2) / 3 * 4, Integer.MAX_VALUE - 8));
+        try {
+            fileToBase64(file, writer);
+        } catch (UncheckedIOException e) {
+            log.error("Failed to read bytes from file: {}", file.getAbsolutePath(), e);
+            return StringPool.EMPTY;
+        }
+        return writer.toString();
+    }
+
+    /**
+     * 文件转换为base64, 编码结果分段写入 {@code writer}, 适合直接写入响应或文件的大文件
+     *
+     * @param file   文件
+     * @param writer 输出, 不会被关闭
+     * @throws UncheckedIOException 读取或写入失败
+     */
+    public static void fileToBase64(File file, Writer writer) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            Base64Convert.encode(in, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 将base64内容解码后写入文件, 分段解码, 内容不会整体加载到内存中
+     *
+     * @param in   base64内容, 忽略其中的换行, 不会被关闭
+     * @param file 目标文件, 已存在时覆盖
+     * @throws UncheckedIOException 读取或写入失败
+     */
+    public static void base64ToFile(InputStream in, File file) {
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            Base64Convert.decode(in, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
@@ -757,11 +1092,11 @@ public final class FileUtils {
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
-        pool.shutdown();
     }
 
     /**
-     * 向指定文件填充文本内容直到达到指定大小
+     * 向指定文件重复填充文本内容直到达到指定大小(文件大小精确等于 {@code size})
+     * 由 {@link SyntheticFileGenerator} 预分配文件并多线程按块写入
      *
      * @param path 文件路径
      * @param text 要填充的文本内容
@@ -771,16 +1106,33 @@ public final class FileUtils {
         if (StringUtils.isEmpty(text) || size <= 0) {
             return;
         }
-        try (FileWriter writer = new FileWriter(path)) {
-            File file = new File(path);
-            while (file.length() < size) {
-                IOUtils.write(text.getBytes(Charset.forName("GBK")), writer, Charset.forName("GBK"));
-            }
+        try {
+            SyntheticFileGenerator.builder()
+                    .text(text)
+                    .charset(Charset.defaultCharset())
+                    .separator(StringUtils.EMPTY)
+                    .build()
+                    .generate(Paths.get(path), size);
         } catch (IOException e) {
             log.error(e.getMessage(), e);
         }
     }
 
+    /**
+     * 生成指定大小的测试数据文件, 内容来自 {@code generator}, 每个元素一行
+     *
+     * @param path      文件路径
+     * @param generator 内容生成器
+     * @param size      目标文件大小(字节)
+     */
+    public static void generateFile(String path, Generator<? extends CharSequence> generator, long size) {
+        try {
+            SyntheticFileGenerator.builder().generator(generator).build().generate(Paths.get(path), size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * 合并文件夹下所有的文件内容到指定的文件
      *
@@ -793,10 +1145,13 @@ public final class FileUtils {
 
     /**
      * 合并文件夹下所有的文件内容到指定的文件
-     * 不使用多线程,性能提升不了太多且代码难以维护
-     * 可以尝试使用AIO {@link AsynchronousFileChannel} 或者 NIO {@link FileChannel}
-     * 或者先多线程读取到内存中再统一写入
-     * 使用线程池 + 阻塞队列(Customer-Producer模式)
+     * 默认单线程顺序读取写入
+     * {@link MergeFileParam#getParallelism()} 大于 1 时使用线程池 + 有界缓冲(Customer-Producer模式):
+     * 多线程读取到内存中, 再由单个线程按目录顺序统一写入, 见 {@link #mergeParallel}
+     * {@link MergeFileParam#isIncremental()} 为 true 时按 {@link MergeManifest} 复用上一次合并结果中未变化的文件
+     * {@link MergeFileParam#isDeduplicate()} 为 true 时按 {@link MergeDeduplicator} 去重, 重复的文件只写入一行引用
+     * {@link MergeFileParam#isGzip()} 为 true 时通过 {@link ParallelGzipOutputStream} 多线程压缩写出 gzip 格式的合并结果
+     * 也可以尝试使用AIO {@link AsynchronousFileChannel} 或者 NIO {@link FileChannel}
      *
      * @param in    文件夹路径
      * @param out   合并到指定的文件
@@ -814,128 +1169,442 @@ public final class FileUtils {
             return;
         }
         Path sourceDir = Paths.get(in);
-        List<String> ignoredFileSuffixes = param.getIgnoredFileSuffixes();
-        List<String> ignoredDirs = param.getIgnoredDirs();
-        List<String> ignoreFiles = param.getIgnoredFiles();
         StopWatch sw = StopWatch.createStarted();
         File outParentFile = getParentFile(new File(out));
         createDir(outParentFile.toString());
         Path targetFile = Paths.get(out);
         try {
-            try (Stream<Path> walk = Files.walk(sourceDir)) {
-                TreeMap<Path, List<Path>> tree = walk
-                        // 排除根目录
-                        .filter(path -> !path.toFile().getAbsolutePath().equals(in))
-                        // 排除不需要合并读取的文件夹
-                        .filter(path -> !isExcludedDir(path, ignoredDirs))
-                        // 排除不需要合并读取的文件
-                        .filter(path -> !isExcludedFilename(path, ignoreFiles))
-                        // 排除不需要合并读取的后缀文件
-                        .filter(path -> !isExcludedFileSuffix(path, ignoredFileSuffixes))
-                        .collect(Collectors.groupingBy(Path::getParent,
-                                TreeMap::new, Collectors.toList()));
-                try (BufferedWriter writer = Files.newBufferedWriter(targetFile, StandardCharsets.UTF_8)) {
-                    int merged = 0;
-                    log.info("文件写入合并开始");
-                    File file;
+            // 并行遍历, 排除的目录直接剪枝, 排除的文件名和后缀在遍历时过滤
+            // 先遍历再打开增量合并(会把上一次的合并结果移动为 <out>.prev), 遍历失败时上一次的合并结果保持不变
+            TreeMap<Path, List<Path>> tree = new ParallelFileWalker(param).groupByDirectory(sourceDir);
+            excludeMergeOutputs(tree, targetFile);
+            IncrementalMerge incremental = param.isIncremental() ? IncrementalMerge.open(targetFile, param) : null;
+            MergeDeduplicator dedup = param.isDeduplicate() ? new MergeDeduplicator() : null;
+            int merged;
+            boolean completed = false;
+            try (FileChannel channel = FileChannel.open(targetFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream os = new BufferedOutputStream(param.isGzip()
+                         ? new ParallelGzipOutputStream(Channels.newOutputStream(channel), param.getGzipParallelism())
+                         : Channels.newOutputStream(channel), MERGE_OUTPUT_BUFFER_SIZE);
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8))) {
+                // 压缩输出时文件内容不能由内核直接拷贝到输出文件, 不传入 channel 改为经过压缩流拷贝
+                MergeSink.Direct sink = new MergeSink.Direct(writer, os, param.isGzip() ? null : channel);
+                log.info("文件写入合并开始");
+                if (param.getParallelism() > 1) {
+                    merged = mergeParallel(sourceDir, tree, sink, param, incremental, dedup);
+                } else {
+                    merged = 0;
                     for (Path kp : tree.keySet()) {
                         log.info("{}", kp.toFile().getAbsolutePath());
                         for (Path path : tree.get(kp)) {
-                            file = path.toFile();
-                            try {
-                                if (Files.isRegularFile(path)) {
-                                    if (isArchiveFile(file)) {
-                                        handleArchiveFile(file, writer);
-                                    } else if (isCompressFile(file)) {
-                                        handleCompressFile(file, writer);
-                                    } else {
-                                        // 写入文件名
-                                        String relativize = sourceDir.relativize(path).toString();
-                                        writer.write("----------" + relativize + "----------");
-                                        writer.newLine();
-
-                                        // 写入文件内容
-                                        // BufferedReader reader = Files.newBufferedReader(file)
-                                        // BufferedReader 专门用于读取文本文件, 会尝试将文件内容按字符编码解析为字符串
-                                        // 如果文件内容是二进制数据(如图片、音频、视频等), 使用 BufferedReader 读取时会抛出
-                                        // MalformedInputException 或其他 IOException
-                                        // 如果需要读取二进制文件,使用 FileInputStream 手动构造 BufferedReader
-                                        try (BufferedReader reader = Files.newBufferedReader(path)) {
-                                            String line;
-                                            while ((line = reader.readLine()) != null) {
-                                                writer.write(line);
-                                                writer.newLine();
-                                            }
-                                        }
-                                        writer.newLine();
-                                        logFileInfo(path.getFileName().toString(), path.toFile().length());
-                                    }
+                            if (!Files.isRegularFile(path)) {
+                                continue;
+                            }
+                            if (incremental == null) {
+                                if (mergeDeduplicated(sourceDir, path, sink, param, dedup)) {
                                     merged++;
                                 }
-                            } catch (IOException e) {
-                                log.error("文件 {} 写入合并异常, {}", path.getFileName(), e.getMessage());
+                                continue;
+                            }
+                            long start = sink.position();
+                            MergeManifest.FileState state = incremental.merge(sourceDir, path, sink, param, dedup);
+                            if (state != null) {
+                                incremental.record(sourceDir.relativize(path).toString(), start,
+                                        sink.position() - start, state);
+                                merged++;
                             }
                         }
                     }
-                    log.info("文件写入合并结束, 本次一共合并 {} 个文件", merged);
-                } catch (IOException e) {
-                    log.error(e.getMessage(), e);
-                    throw new RuntimeException(e);
                 }
-                // 确保文件写入操作完成后再获取文件大小(try块结束时,
-                // BufferedWriter会被自动关闭,并触发close方法,确保
-                // 所有缓冲区中的数据被写入到文件中,并且文件被正确关闭)
-                log.info("合并后的文件大小为: {}", ByteUnitConverter.convert(targetFile.toFile().length()));
+                log.info("文件写入合并结束, 本次一共合并 {} 个文件", merged);
+                if (dedup != null) {
+                    log.info("去重跳过 {} 个重复文件, 共 {}", dedup.duplicates(), ByteUnitConverter.convert(dedup.savedBytes()));
+                }
+                completed = true;
+            } catch (IOException e) {
+                log.error(e.getMessage(), e);
+                throw new RuntimeException(e);
+            } finally {
+                // 任何异常(包括合并过程中的 RuntimeException)都恢复上一次的合并结果, 此时输出文件已经关闭
+                if (!completed && incremental != null) {
+                    incremental.abort(targetFile);
+                }
+            }
+            if (incremental != null) {
+                incremental.finish(targetFile);
             }
+            // 确保文件写入操作完成后再获取文件大小(try块结束时,
+            // BufferedWriter会被自动关闭,并触发close方法,确保
+            // 所有缓冲区中的数据被写入到文件中,并且文件被正确关闭)
+            log.info("合并后的文件大小为: {}", ByteUnitConverter.convert(targetFile.toFile().length()));
             sw.stop();
+            logThroughput(targetFile.toFile().length(), merged, sw.getTime());
             log.info("合并耗时: {}", TimeUnitConverter.convertMills(sw.getTime()));
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             log.error(e.getMessage(), e);
         }
     }
 
-    private static void logFileInfo(String fileName, long size) {
-        log.info("\t 文件名称: {} - 文件大小: {}", fileName, ByteUnitConverter.convert(size));
+    /**
+     * 合并单个文件
+     *
+     * @param sourceDir 源目录, 用于计算写入的相对路径
+     * @param path      需要合并的文件
+     * @param sink      输出
+     * @param param     合并参数
+     * @return 是否合并成功
+     */
+    private static boolean mergeOne(Path sourceDir, Path path, MergeSink sink, MergeFileParam param) {
+        File file = path.toFile();
+        try {
+            FileTypeDetector.FileType type = FileTypeDetector.detect(path);
+            if (type.isArchive()) {
+                if (param.getArchiveParallelism() > 1 && ArchiveStreamFactory.ZIP.equals(type.archiveType())) {
+                    handleArchiveFileParallel(file, sink.writer(), param);
+                } else {
+                    handleArchiveFile(file, sink.writer(), param.isDeduplicate());
+                }
+            } else if (type.isCompress()) {
+                handleCompressFile(file, sink.writer(), param.isDeduplicate());
+            } else {
+                // 写入文件名
+                BufferedWriter writer = sink.writer();
+                String relativize = sourceDir.relativize(path).toString();
+                writer.write("----------" + relativize + "----------");
+                writer.newLine();
+
+                UnaryOperator<String> lineTransformer = param.getLineTransformer();
+                if (param.isByteTransfer() && lineTransformer == null) {
+                    // 不需要按行转换时原样拷贝字节, 不解码也不会因为编码问题失败
+                    long size = Files.size(path);
+                    sink.transfer(path, 0, size);
+                    writer = sink.writer();
+                    if (size > 0 && lastByte(path, size) != '\n') {
+                        writer.newLine();
+                    }
+                } else {
+                    // 写入文件内容
+                    // BufferedReader reader = Files.newBufferedReader(file)
+                    // BufferedReader 专门用于读取文本文件, 会尝试将文件内容按字符编码解析为字符串
+                    // 如果文件内容是二进制数据(如图片、音频、视频等), 使用 BufferedReader 读取时会抛出
+                    // MalformedInputException 或其他 IOException
+                    // 如果需要读取二进制文件,使用 FileInputStream 手动构造 BufferedReader
+                    try (BufferedReader reader = Files.newBufferedReader(path)) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            writer.write(lineTransformer == null ? line : lineTransformer.apply(line));
+                            writer.newLine();
+                        }
+                    }
+                }
+                writer.newLine();
+                logFileInfo(path.getFileName().toString(), file.length());
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("文件 {} 写入合并异常, {}", path.getFileName(), e.getMessage());
+            return false;
+        }
     }
 
-
-    private static boolean isExcludedDir(Path path, List<String> ignoredDirs) {
-        if (ignoredDirs == null) {
+    /**
+     * 文件内容已经合并过时写入引用, 否则正常合并, 合并成功后才登记为第一次出现
+     *
+     * @param dedup 去重的上下文, 不去重时为 null
+     * @return 是否合并成功(包括写入引用)
+     */
+    private static boolean mergeDeduplicated(Path sourceDir, Path path, MergeSink sink, MergeFileParam param,
+                                             MergeDeduplicator dedup) {
+        MergeDeduplicator.Key key = dedupKey(path, dedup != null);
+        String relativize = sourceDir.relativize(path).toString();
+        try {
+            if (key != null && dedup.writeIfDuplicate(sink.writer(), key, relativize)) {
+                return true;
+            }
+        } catch (IOException e) {
+            log.error("文件 {} 写入合并异常, {}", path.getFileName(), e.getMessage());
             return false;
         }
-        // 实际使用时, ignoredDirs不会太多, 没必要使用Set
-        for (String ignoredDir : ignoredDirs) {
-            if (path.toString().contains(ignoredDir)) {
-                return true;
+        if (!mergeOne(sourceDir, path, sink, param)) {
+            return false;
+        }
+        if (key != null) {
+            dedup.record(key, relativize);
+        }
+        return true;
+    }
+
+    /**
+     * @return 文件的去重依据, 不去重或者计算哈希失败时返回 null(按不重复处理)
+     */
+    private static MergeDeduplicator.Key dedupKey(Path path, boolean deduplicate) {
+        if (!deduplicate) {
+            return null;
+        }
+        try {
+            return MergeDeduplicator.key(path, Files.size(path));
+        } catch (IOException e) {
+            log.error("文件 {} 计算哈希异常, {}", path.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 并行合并: 多个读取线程并发读取并转换文件, 结果暂存在内存中, 由当前线程按 {@link TreeMap} 的顺序依次写出
+     * 当前线程按顺序提交读取任务, 提交前为每个文件预留与其大小相同的缓冲额度(超过上限的按上限计),
+     * 额度不足时先写出最早提交的文件并归还额度, 因此内存中暂存的数据不会超过 {@link MergeFileParam#getMaxBufferedBytes()}
+     * (归档/压缩文件解压后可能超出预留的额度)
+     * 去重时读取线程同时计算内容哈希, 是否重复在写出时按输出顺序判断, 因此输出与单线程合并相同
+     *
+     * @param sourceDir   源目录
+     * @param tree        按目录分组并排序的文件
+     * @param out         输出
+     * @param param       合并参数
+     * @param incremental 增量合并的上下文, 非增量合并时为 null
+     * @param dedup       去重的上下文, 不去重时为 null
+     * @return 合并成功的文件数
+     */
+    private static int mergeParallel(Path sourceDir, TreeMap<Path, List<Path>> tree, MergeSink.Direct out,
+                                     MergeFileParam param, IncrementalMerge incremental,
+                                     MergeDeduplicator dedup) throws IOException {
+        int parallelism = param.getParallelism();
+        long budget = param.getMaxBufferedBytes();
+        int maxPending = parallelism * 4;
+        ExecutorService readers = ThreadPoolBuilder.builder(maxPending)
+                .corePoolSize(parallelism)
+                .maxPoolSize(parallelism)
+                .threadPoolName("merge-file-reader")
+                .build();
+        Deque<PendingMerge> pending = new ArrayDeque<>(maxPending);
+        long buffered = 0;
+        int merged = 0;
+        try {
+            for (Map.Entry<Path, List<Path>> entry : tree.entrySet()) {
+                log.info("{}", entry.getKey().toFile().getAbsolutePath());
+                for (Path path : entry.getValue()) {
+                    if (!Files.isRegularFile(path)) {
+                        continue;
+                    }
+                    long reserve = Math.min(Math.max(path.toFile().length(), 1L), budget);
+                    while (!pending.isEmpty() && (buffered + reserve > budget || pending.size() >= maxPending)) {
+                        PendingMerge head = pending.poll();
+                        merged += head.writeTo(out, incremental, dedup);
+                        buffered -= head.reserved();
+                    }
+                    buffered += reserve;
+                    pending.add(new PendingMerge(readers.submit(() -> render(sourceDir, path, param, incremental)), reserve));
+                }
+            }
+            while (!pending.isEmpty()) {
+                merged += pending.poll().writeTo(out, incremental, dedup);
             }
+        } finally {
+            for (PendingMerge p : pending) {
+                p.rendered().cancel(true);
+            }
+            readers.shutdown();
         }
-        return false;
+        return merged;
     }
 
-    private static boolean isExcludedFileSuffix(Path path, List<String> ignoredFileSuffixes) {
-        if (ignoredFileSuffixes == null) {
-            return false;
+    private static RenderedFile render(Path sourceDir, Path path, MergeFileParam param,
+                                       IncrementalMerge incremental) throws IOException {
+        MergeSink.Deferred content = new MergeSink.Deferred();
+        MergeManifest.FileState state = null;
+        MergeDeduplicator.Key key = null;
+        boolean merged;
+        if (incremental == null) {
+            key = dedupKey(path, param.isDeduplicate());
+            merged = mergeOne(sourceDir, path, content, param);
+        } else {
+            // 增量合并时清单中的哈希就是内容哈希, 不需要再读取一次
+            state = incremental.merge(sourceDir, path, content, param, null);
+            merged = state != null;
+            if (merged && param.isDeduplicate()) {
+                key = MergeDeduplicator.key(state.hash(), state.size());
+            }
         }
-        for (String ignoredFileSuffix : ignoredFileSuffixes) {
-            if (path.toString().toLowerCase().endsWith(ignoredFileSuffix)) {
-                return true;
+        content.finish();
+        return new RenderedFile(sourceDir.relativize(path).toString(), content, merged, state, key);
+    }
+
+    /**
+     * 已经读取并转换到内存中的文件
+     *
+     * @param relativize 源文件的相对路径
+     * @param content    转换后的内容
+     * @param merged     是否合并成功
+     * @param state      增量合并时源文件的状态, 记录到清单中
+     * @param key        去重时源文件的去重依据
+     */
+    private record RenderedFile(String relativize, MergeSink.Deferred content, boolean merged,
+                                MergeManifest.FileState state, MergeDeduplicator.Key key) {
+    }
+
+    /**
+     * 已提交但尚未写出的文件
+     */
+    private record PendingMerge(Future<RenderedFile> rendered, long reserved) {
+        int writeTo(MergeSink.Direct out, IncrementalMerge incremental, MergeDeduplicator dedup) throws IOException {
+            RenderedFile file;
+            try {
+                file = rendered.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+            if (dedup != null && file.key() != null && dedup.writeIfDuplicate(out.writer(), file.key(), file.relativize())) {
+                // 引用依赖前面的文件, 不记录到清单中
+                return 1;
+            }
+            if (incremental == null) {
+                file.content().writeTo(out);
+            } else {
+                long start = out.position();
+                file.content().writeTo(out);
+                if (file.state() != null) {
+                    incremental.record(file.relativize(), start, out.position() - start, file.state());
+                }
             }
+            if (!file.merged()) {
+                return 0;
+            }
+            if (dedup != null) {
+                dedup.record(file.key(), file.relativize());
+            }
+            return 1;
         }
-        return false;
     }
 
-    private static boolean isExcludedFilename(Path path, List<String> ignoreFiles) {
-        if (ignoreFiles == null) {
-            return false;
+    /**
+     * 合并结果在源目录中时, 排除合并结果本身以及增量合并的清单和 {@code <out>.prev},
+     * 否则会把上一次的合并结果再合并进来
+     */
+    private static void excludeMergeOutputs(TreeMap<Path, List<Path>> tree, Path out) {
+        Path target = out.toAbsolutePath().normalize();
+        Set<Path> outputs = Set.of(target, MergeManifest.manifestPath(target),
+                Paths.get(target + IncrementalMerge.PREVIOUS_SUFFIX));
+        tree.values().forEach(paths -> paths.removeIf(path -> outputs.contains(path.toAbsolutePath().normalize())));
+    }
+
+    /**
+     * 增量合并的上下文
+     * 上一次的清单可以复用时, 先把上一次的合并结果移动到 {@code <out>.prev},
+     * 未变化的文件从中按区间拷贝(有 {@link FileChannel} 时由内核完成), 合并成功后写入新的清单并删除 {@code <out>.prev}
+     * 去重时写入的引用依赖前面的文件, 不记录到清单中, 下次合并时重新判断
+     */
+    private static final class IncrementalMerge {
+        private static final String PREVIOUS_SUFFIX = ".prev";
+
+        private final MergeManifest previous;
+        private final Path previousOutput;
+        private final MergeManifest current;
+        private final AtomicInteger reused = new AtomicInteger();
+
+        private IncrementalMerge(MergeManifest previous, Path previousOutput, MergeManifest current) {
+            this.previous = previous;
+            this.previousOutput = previousOutput;
+            this.current = current;
         }
-        for (String ignoreFile : ignoreFiles) {
-            if (StringUtil.equals(path.getFileName().toString(), ignoreFile)) {
-                return true;
+
+        static IncrementalMerge open(Path out, MergeFileParam param) throws IOException {
+            // 逐行转换无法判断前后两次是否相同, 设置了转换时每次都全量合并
+            String mode = "byteTransfer=" + param.isByteTransfer() + ",lineTransformer=" + (param.getLineTransformer() != null);
+            MergeManifest previous = param.getLineTransformer() == null ? MergeManifest.loadReusable(out, mode) : null;
+            Path previousOutput = null;
+            if (previous != null) {
+                previousOutput = Paths.get(out + PREVIOUS_SUFFIX);
+                Files.move(out, previousOutput, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return new IncrementalMerge(previous, previousOutput, new MergeManifest(mode));
+        }
+
+        /**
+         * 合并单个文件, 未变化时复用上一次的片段
+         *
+         * @param dedup 去重的上下文, 为 null 时不去重
+         * @return 源文件的状态, 合并失败返回 null; 写入的是重复文件的引用时哈希为 null
+         */
+        MergeManifest.FileState merge(Path sourceDir, Path path, MergeSink sink, MergeFileParam param,
+                                      MergeDeduplicator dedup) {
+            try {
+                MergeManifest.FileState state = MergeManifest.state(path);
+                String relativize = sourceDir.relativize(path).toString();
+                MergeManifest.Entry entry = previous == null ? null : previous.reusable(relativize, state, path);
+                // 先计算哈希再合并, 合并过程中文件被修改时下次哈希不一致, 会重新合并
+                state = entry != null ? new MergeManifest.FileState(state.size(), state.mtime(), entry.hash())
+                        : MergeManifest.withHash(state, path);
+                MergeDeduplicator.Key key = dedup == null ? null : MergeDeduplicator.key(state.hash(), state.size());
+                if (key != null && dedup.writeIfDuplicate(sink.writer(), key, relativize)) {
+                    return new MergeManifest.FileState(state.size(), state.mtime(), null);
+                }
+                if (entry != null) {
+                    sink.transfer(previousOutput, entry.offset(), entry.length());
+                    reused.incrementAndGet();
+                } else if (!mergeOne(sourceDir, path, sink, param)) {
+                    return null;
+                }
+                if (key != null) {
+                    dedup.record(key, relativize);
+                }
+                return state;
+            } catch (IOException e) {
+                log.error("文件 {} 写入合并异常, {}", path.getFileName(), e.getMessage());
+                return null;
             }
         }
-        return false;
+
+        void record(String relativize, long offset, long length, MergeManifest.FileState state) {
+            if (state.hash() != null) {
+                current.add(relativize, offset, length, state);
+            }
+        }
+
+        void finish(Path out) throws IOException {
+            current.write(out, Files.size(out));
+            if (previousOutput != null) {
+                Files.deleteIfExists(previousOutput);
+            }
+            log.info("增量合并复用 {} 个未变化的文件", reused.get());
+        }
+
+        /**
+         * 合并失败时恢复上一次的合并结果, 清单仍然有效
+         */
+        void abort(Path out) {
+            if (previousOutput == null) {
+                return;
+            }
+            try {
+                Files.move(previousOutput, out, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                log.error("恢复上一次的合并结果失败, {}", e.getMessage());
+            }
+        }
+    }
+
+    private static byte lastByte(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, size - 1);
+            return buffer.get(0);
+        }
+    }
+
+    private static void logThroughput(long bytes, int files, long millis) {
+        double seconds = Math.max(millis, 1L) / 1000.0;
+        log.info("合并吞吐量: {}/s, {} 个文件/s", ByteUnitConverter.convert((long) (bytes / seconds)),
+                String.format("%.1f", files / seconds));
+    }
+
+    private static void logFileInfo(String fileName, long size) {
+        log.info("\t 文件名称: {} - 文件大小: {}", fileName, ByteUnitConverter.convert(size));
     }
 
+
     /**
      * 将文件内容读取到字节数组中
      *
@@ -978,18 +1647,7 @@ public final class FileUtils {
         }
         File outParentFile = getParentFile(out);
         createDir(outParentFile.toString());
-        createFile(out);
-        try (FileChannel readChannel = FileChannel.open(in.toPath(), StandardOpenOption.READ);
-             FileChannel writeChannel = FileChannel.open(out.toPath(), StandardOpenOption.WRITE)) {
-            ByteBuffer buffer = ByteBuffer.allocate(Constants.KB);
-            while (readChannel.read(buffer) != -1) {
-                buffer.flip();
-                writeChannel.write(buffer);
-                buffer.clear();
-            }
-        } catch (IOException e) {
-            log.error(e.getMessage(), e);
-        }
+        copy(in.toPath(), out.toPath());
     }
 
     public static void copyfileByChannel(String in, String out) {
@@ -1021,22 +1679,17 @@ public final class FileUtils {
         if (file == null || !file.exists() || !file.isFile()) {
             return false;
         }
-        return isArchiveFile(new FileInputStream(file));
+        return FileTypeDetector.detect(file.toPath()).isArchive();
     }
 
+    /**
+     * 只读取流开头的 {@link FileTypeDetector#HEADER_SIZE} 个字节判断, 支持 mark/reset 的流在判断后会回到原来的位置
+     *
+     * @param is 输入流
+     * @return 是否为 archive file
+     */
     public static boolean isArchiveFile(InputStream is) throws IOException {
-        // PPTX文件虽然本质上是ZIP格式, 但是使用ZipInputStream处理不了, 忽略
-        byte[] original = IOUtils.toByteArray(is);
-        if (isIgnoredFile(new ByteArrayInputStream(original))) {
-            return false;
-        }
-        Set<String> localArchiveFileTypes = archiveFileTypes;
-        try (BufferedInputStream bis = new BufferedInputStream(new ByteArrayInputStream(original))) {
-            return localArchiveFileTypes.contains(ArchiveStreamFactory.detect(bis));
-        } catch (IOException | ArchiveException e) {
-            // No Archiver found for the stream signature, ignored
-            return false;
-        }
+        return FileTypeDetector.detect(is).isArchive();
     }
 
     /**
@@ -1051,128 +1704,350 @@ public final class FileUtils {
         if (file == null || !file.exists() || !file.isFile()) {
             return false;
         }
-        return isCompressFile(new FileInputStream(file));
+        try {
+            return FileTypeDetector.detect(file.toPath()).isCompress();
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            return false;
+        }
     }
 
     public static boolean isCompressFile(InputStream is) {
-        Set<String> localCompressFileTypes = compressFileTypes;
-        try (BufferedInputStream bis = new BufferedInputStream(is)) {
-            return localCompressFileTypes.contains(CompressorStreamFactory.detect(bis));
-        } catch (IOException | CompressorException e) {
-            // No Compressor found for the stream signature, ignored
+        try {
+            return FileTypeDetector.detect(is).isCompress();
+        } catch (IOException e) {
             return false;
         }
     }
 
-    private static void handleArchiveFile(File file, BufferedWriter writer) {
+    /**
+     * 多线程分块压缩文件为 gzip 格式, 见 {@link ParallelGzipOutputStream}
+     *
+     * @param source      源文件
+     * @param target      压缩后的文件
+     * @param parallelism 压缩线程数
+     */
+    public static void gzip(Path source, Path target, int parallelism) {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             OutputStream os = new ParallelGzipOutputStream(Files.newOutputStream(target), parallelism)) {
+            in.transferTo(0, in.size(), Channels.newChannel(os));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 多线程压缩目录下的所有文件为 zip, 每个 entry 由线程池中的一个线程独立压缩, 最后拼接成一个 zip
+     * (commons-compress 的 {@link ParallelScatterZipCreator}), 单个文件不会被拆分, 适合文件数量较多的目录
+     * entry 按压缩线程分组写出, 顺序与目录中的顺序不一定相同
+     *
+     * @param sourceDir   源目录
+     * @param target      zip 文件, 在源目录中时不会被压缩进去
+     * @param parallelism 压缩线程数
+     */
+    public static void zip(Path sourceDir, Path target, int parallelism) {
+        List<Path> files = new ParallelFileWalker(MergeFileParam.create()).list(sourceDir);
+        // 目标文件在源目录中时, 排除正在写入的目标文件(以及上一次压缩的结果)
+        Path output = target.toAbsolutePath().normalize();
+        files.removeIf(file -> file.toAbsolutePath().normalize().equals(output));
+        ExecutorService pool = ThreadPoolBuilder.builder(Math.max(files.size(), 1))
+                .corePoolSize(parallelism)
+                .maxPoolSize(parallelism)
+                .threadPoolName("parallel-zip")
+                .build();
+        ParallelScatterZipCreator creator = new ParallelScatterZipCreator(pool);
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(target)) {
+            for (Path file : files) {
+                ZipArchiveEntry entry = new ZipArchiveEntry(sourceDir.relativize(file).toString().replace(File.separatorChar, '/'));
+                entry.setMethod(ZipEntry.DEFLATED);
+                entry.setTime(Files.getLastModifiedTime(file).toMillis());
+                creator.addArchiveEntry(entry, () -> {
+                    try {
+                        return Files.newInputStream(file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            // 等待所有 entry 压缩完成后写出, 结束后关闭线程池
+            creator.writeTo(zos);
+            log.info("{} 压缩完成, 共 {} 个文件, {}", target, files.size(), creator.getStatisticsMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void handleArchiveFile(File file, BufferedWriter writer, boolean deduplicate) {
         log.info("文件 {} 是归档文件, 开始处理...", file.getAbsolutePath());
         try (ZipInputStream zis = new ZipInputStream(new FileInputStream(file))) {
             log.info("归档文件写入合并开始");
-            doWrite(new ZipArchiveReader(zis), null, writer);
+            doWrite(new ZipArchiveReader(zis), null, writer, deduplicate);
         } catch (IOException e) {
             log.error(e.getMessage(), e);
         }
     }
 
-    private static void handleNestedArchiveFile(byte[] oba, BufferedWriter writer, String rootEntryName) {
-        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(oba))) {
-            doWrite(new ZipArchiveReader(zis), rootEntryName, writer);
+    /**
+     * 通过中央目录随机访问 zip, 多个线程同时解压不同的 entry, 结果暂存在内存中, 由当前线程按 entry 的顺序写出
+     * 与 {@link #mergeParallel} 一样按 entry 的大小预留缓冲额度, 暂存的 entry 个数也有上限
+     * 去重时 entry 的哈希在解压线程中计算, 是否重复在写出时按 entry 的顺序判断
+     * 输出与 {@link #handleArchiveFile} 相同
+     *
+     * @param file   zip 文件
+     * @param writer 输出
+     * @param param  合并参数
+     */
+    private static void handleArchiveFileParallel(File file, BufferedWriter writer, MergeFileParam param) {
+        log.info("文件 {} 是归档文件, 开始并行处理...", file.getAbsolutePath());
+        int parallelism = param.getArchiveParallelism();
+        long budget = param.getMaxBufferedBytes();
+        int maxPending = parallelism * 4;
+        ExecutorService inflaters = ThreadPoolBuilder.builder(maxPending)
+                .corePoolSize(parallelism)
+                .maxPoolSize(parallelism)
+                .threadPoolName("merge-zip-inflater")
+                .build();
+        Deque<PendingEntry> pending = new ArrayDeque<>(maxPending);
+        MergeDeduplicator dedup = param.isDeduplicate() ? new MergeDeduplicator() : null;
+        try (ZipFileArchiveReader reader = new ZipFileArchiveReader(file)) {
+            log.info("归档文件写入合并开始");
+            List<ArchiveEntryWrapper> entries = reader.entries();
+            long buffered = 0;
+            int written = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                ArchiveEntryWrapper entry = entries.get(i);
+                if (entry.directory() || entry.size() == 0L) {
+                    continue;
+                }
+                long reserve = Math.min(Math.max(entry.size(), 1L), budget);
+                while (!pending.isEmpty() && (buffered + reserve > budget || pending.size() >= maxPending)) {
+                    PendingEntry head = pending.poll();
+                    written += head.writeTo(writer, dedup);
+                    buffered -= head.reserved();
+                }
+                int index = i;
+                buffered += reserve;
+                pending.add(new PendingEntry(inflaters.submit(() -> renderEntry(reader, index, entry, dedup != null)), reserve));
+            }
+            while (!pending.isEmpty()) {
+                written += pending.poll().writeTo(writer, dedup);
+            }
+            logWritten(written, dedup);
         } catch (IOException e) {
             log.error(e.getMessage(), e);
+        } finally {
+            for (PendingEntry p : pending) {
+                p.rendered().cancel(true);
+            }
+            inflaters.shutdown();
         }
     }
 
+    private static RenderedEntry renderEntry(ZipFileArchiveReader reader, int index,
+                                             ArchiveEntryWrapper entry, boolean deduplicate) throws IOException {
+        StringBuilderWriter content = new StringBuilderWriter();
+        // 单独的实例只记录当前 entry 的哈希, 嵌套的归档使用各自的实例
+        MergeDeduplicator probe = deduplicate ? new MergeDeduplicator() : null;
+        boolean written;
+        try (InputStream in = reader.openEntry(index);
+             BufferedWriter writer = new BufferedWriter(content)) {
+            written = writeEntry(entry, new BufferedInputStream(in, FileTypeDetector.HEADER_SIZE), null, writer, probe);
+        }
+        return new RenderedEntry(entry.name(), content.getBuilder(), written, probe == null ? null : probe.single());
+    }
 
-    private static void handleCompressFile(File file, BufferedWriter writer) {
+    /**
+     * 已经解压并转换到内存中的 entry
+     *
+     * @param key 去重时普通 entry 的去重依据
+     */
+    private record RenderedEntry(String name, StringBuilder content, boolean written, MergeDeduplicator.Key key) {
+    }
+
+    /**
+     * 已提交但尚未写出的 entry
+     */
+    private record PendingEntry(Future<RenderedEntry> rendered, long reserved) {
+        int writeTo(BufferedWriter writer, MergeDeduplicator dedup) throws IOException {
+            RenderedEntry entry;
+            try {
+                entry = rendered.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+            if (dedup == null || entry.key() == null || !dedup.writeIfDuplicate(writer, entry.key(), entry.name())) {
+                writer.append(entry.content());
+                if (dedup != null && entry.written()) {
+                    dedup.record(entry.key(), entry.name());
+                }
+            }
+            return entry.written() ? 1 : 0;
+        }
+    }
+
+    private static void handleNestedArchiveFile(InputStream in, BufferedWriter writer, String rootEntryName,
+                                                boolean deduplicate) {
+        try (ZipInputStream zis = new ZipInputStream(CloseShieldInputStream.wrap(in))) {
+            doWrite(new ZipArchiveReader(zis), rootEntryName, writer, deduplicate);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+
+    private static void handleCompressFile(File file, BufferedWriter writer, boolean deduplicate) {
         log.info("文件 {} 是压缩文件, 开始处理...", file.getAbsolutePath());
         try (FileInputStream fis = new FileInputStream(file);
              BufferedInputStream bis = new BufferedInputStream(fis);
              GzipCompressorInputStream gzip = new GzipCompressorInputStream(bis);
              TarArchiveInputStream inputStream = new TarArchiveInputStream(gzip)) {
             log.info("压缩文件写入合并开始");
-            doWrite(new TarArchiveReader(inputStream), null, writer);
+            doWrite(new TarArchiveReader(inputStream), null, writer, deduplicate);
         } catch (IOException e) {
             log.error(e.getMessage(), e);
         }
     }
 
-    private static void handleNestedCompressFile(byte[] oba, BufferedWriter writer, String rootEntryName) {
+    private static void handleNestedCompressFile(InputStream in, BufferedWriter writer, String rootEntryName,
+                                                 boolean deduplicate) {
         // 先解压 GZIP 格式的数据流, 再读取 tar 归档文件
         // 顺序不可写反 .tar.gz -> GZIPInputStream -> TarArchiveInputStream -> 读取 tar entry 即 new TarArchiveInputStream(new GZIPInputStream(...))
         // 不能写成 new GZIPInputStream(new TarArchiveInputStream(...))
         try (TarArchiveInputStream inputStream = new TarArchiveInputStream
-                (new GZIPInputStream(new ByteArrayInputStream(oba)))) {
-            doWrite(new TarArchiveReader(inputStream), rootEntryName, writer);
+                (new GZIPInputStream(CloseShieldInputStream.wrap(in)))) {
+            doWrite(new TarArchiveReader(inputStream), rootEntryName, writer, deduplicate);
         } catch (IOException e) {
             log.error(e.getMessage(), e);
         }
     }
 
+    /**
+     * 逐个处理归档中的 entry, entry 的内容不会整体加载到内存中:
+     * 通过 {@link BufferedInputStream} 的 mark/reset 预读开头的 {@link FileTypeDetector#HEADER_SIZE} 个字节判断类型,
+     * 普通文件边读边写入, 嵌套的归档/压缩文件直接在当前 entry 的流上继续解压, 同样按流处理
+     * 去重时同一个归档(不包括其中嵌套的归档)中内容相同的 entry 只写入一次, 见 {@link #doWrite(BufferedWriter, InputStream, String, MergeDeduplicator)}
+     *
+     * @param reader        归档
+     * @param rootEntryName 嵌套时外层 entry 的名称, 不是嵌套时为 null
+     * @param writer        输出
+     * @param deduplicate   是否去重
+     */
     private static void doWrite(ArchiveReader reader,
                                 String rootEntryName,
-                                BufferedWriter writer) throws IOException {
+                                BufferedWriter writer,
+                                boolean deduplicate) throws IOException {
         ArchiveEntryWrapper entry;
         int entries = 0;
-        byte[] original;
-        String entryName;
-        ByteArrayInputStream detectCompressFileStream = null;
-        ByteArrayInputStream detectArchiveFileStream = null;
-        ByteArrayInputStream detectIgnoredFileStream = null;
-        ByteArrayInputStream writerInputStream = null;
+        MergeDeduplicator dedup = deduplicate ? new MergeDeduplicator() : null;
         while ((entry = reader.getNextEntry()) != null) {
             if (entry.directory() || entry.size() == 0L) {
                 continue;
             }
-            if (rootEntryName != null) {
-                // nested
-                entryName = rootEntryName + IOUtils.DIR_SEPARATOR_UNIX + entry.name();
-            } else {
-                entryName = entry.name();
+            InputStream peek = new BufferedInputStream(reader.entryStream(), FileTypeDetector.HEADER_SIZE);
+            if (writeEntry(entry, peek, rootEntryName, writer, dedup)) {
+                entries++;
             }
+        }
+        logWritten(entries, dedup);
+    }
 
-            original = reader.readEntry();
-            detectCompressFileStream = new ByteArrayInputStream(original);
-            detectArchiveFileStream = new ByteArrayInputStream(original);
-            detectIgnoredFileStream = new ByteArrayInputStream(original);
-            if (isIgnoredFile(detectIgnoredFileStream)) {
-                continue;
-            }
-            if (isCompressFile(detectCompressFileStream)) {
-                log.info("嵌套的压缩文件 {}", entryName);
-                handleNestedCompressFile(original, writer, entryName);
-            } else if (isArchiveFile(detectArchiveFileStream)) {
-                log.info("嵌套的归档文件 {}", entryName);
-                handleNestedArchiveFile(original, writer, entryName);
-            } else {
-                writerInputStream = new ByteArrayInputStream(original);
-                doWrite(writer, writerInputStream, entryName);
-                // entry.size() = -1B?
-                logFileInfo(entryName, original.length);
-            }
-            entries++;
+    private static void logWritten(int entries, MergeDeduplicator dedup) {
+        if (dedup == null || dedup.duplicates() == 0) {
+            log.info("写入合并结束, 实际读取合并共 {} 个文件", entries);
+        } else {
+            log.info("写入合并结束, 实际读取合并共 {} 个文件, 其中 {} 个重复", entries, dedup.duplicates());
         }
-        log.info("写入合并结束, 实际读取合并共 {} 个文件", entries);
-        try {
-            IOUtils.close(detectCompressFileStream, detectArchiveFileStream, detectIgnoredFileStream, writerInputStream);
-        } catch (IOExceptionList e) {
-            log.error(e.getMessage(), e);
+    }
+
+    /**
+     * 写入归档中的单个 entry
+     *
+     * @param entry         entry
+     * @param peek          entry 的内容, 需要支持 mark/reset
+     * @param rootEntryName 嵌套时外层 entry 的名称, 不是嵌套时为 null
+     * @param writer        输出
+     * @param dedup         当前归档的去重上下文, 不去重时为 null
+     * @return 是否写入, 需要忽略的文件返回 false
+     */
+    private static boolean writeEntry(ArchiveEntryWrapper entry, InputStream peek, String rootEntryName,
+                                      BufferedWriter writer, MergeDeduplicator dedup) throws IOException {
+        String entryName;
+        if (rootEntryName != null) {
+            // nested
+            entryName = rootEntryName + IOUtils.DIR_SEPARATOR_UNIX + entry.name();
+        } else {
+            entryName = entry.name();
+        }
+        FileTypeDetector.FileType type = FileTypeDetector.detect(peek);
+        if (type.isIgnored()) {
+            return false;
         }
+        if (type.isCompress()) {
+            log.info("嵌套的压缩文件 {}", entryName);
+            handleNestedCompressFile(peek, writer, entryName, dedup != null);
+        } else if (type.isArchive()) {
+            log.info("嵌套的归档文件 {}", entryName);
+            handleNestedArchiveFile(peek, writer, entryName, dedup != null);
+        } else {
+            long size = doWrite(writer, peek, entryName, dedup);
+            // entry.size() = -1B?
+            logFileInfo(entryName, size);
+        }
+        return true;
     }
 
 
-    private static void doWrite(BufferedWriter writer, InputStream inputStream, String entryName) throws IOException {
+    /**
+     * 写入普通 entry, 去重时先读入不超过 {@link MergeDeduplicator#MAX_ENTRY_SIZE} 的内容计算哈希, 重复时只写入引用
+     * 读入内存的部分与剩余的流拼接后照常写入, 输出与不去重时相同
+     *
+     * @return entry 的大小
+     */
+    private static long doWrite(BufferedWriter writer, InputStream inputStream, String entryName,
+                                MergeDeduplicator dedup) throws IOException {
+        if (dedup == null) {
+            return doWrite(writer, inputStream, entryName);
+        }
+        MergeDeduplicator.BufferedEntry buffered = MergeDeduplicator.read(inputStream);
+        if (buffered.key() != null && dedup.writeIfDuplicate(writer, buffered.key(), entryName)) {
+            return buffered.key().size();
+        }
+        long size = doWrite(writer, buffered.stream(inputStream), entryName);
+        dedup.record(buffered.key(), entryName);
+        return size;
+    }
+
+    private static long doWrite(BufferedWriter writer, InputStream inputStream, String entryName) throws IOException {
         // 写入文件名
         writer.write("----------" + entryName + "----------");
         writer.newLine();
 
         // 写入文件内容
-        byte[] buffer = new byte[FileCopyUtils.BUFFER_SIZE];
-        int length;
-        while ((length = inputStream.read(buffer)) > 0) {
-            writer.write(new String(buffer, 0, length, StandardCharsets.UTF_8));
-            writer.newLine();
+        // 每次读满整个缓冲区(最后一次除外), 每段内容之后的换行位置与读取的流无关
+        long total = 0;
+        try (BufferPool.Lease<byte[]> lease = BufferPool.DEFAULT.heap(FileCopyUtils.BUFFER_SIZE)) {
+            // 池中的缓冲区可能更大, 只使用 BUFFER_SIZE 个字节, 保持每段内容的长度不变
+            byte[] buffer = lease.get();
+            int length;
+            while ((length = IOUtils.read(inputStream, buffer, 0, FileCopyUtils.BUFFER_SIZE)) > 0) {
+                writer.write(new String(buffer, 0, length, StandardCharsets.UTF_8));
+                writer.newLine();
+                total += length;
+            }
         }
         writer.newLine();
+        return total;
     }
 
     /**
@@ -1184,20 +2059,7 @@ public final class FileUtils {
                 return false;
             }
             inputStream = FileMagic.prepareToCheckMagic(inputStream);
-            inputStream.mark(512);
-            FileMagic fileMagic = FileMagic.valueOf(inputStream);
-            inputStream.reset();
-            String mimeType = tika.detect(inputStream);
-            if (fileMagic == FileMagic.OOXML) {
-                // Java Archive(jar) 也是基于ZIP格式, 也会返回FileMagic.OOXML
-                if (WellKnownMimeType.APPLICATION_ZIP.getString().equals(mimeType)) {
-                    return false;
-                }
-                // 可能是PPTX, DOCX或XLSX(这几种文件也忽略)
-                return "application/x-tika-ooxml"
-                        .equals(mimeType);
-            }
-            return ignoredFileMagics.contains(fileMagic);
+            return FileTypeDetector.detect(inputStream).isIgnored();
         } catch (IOException e) {
             log.error(e.getMessage(), e);
             return false;
@@ -0,0 +1,124 @@
+package cn.qingweico.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link FileUtils#downloadFileStream} 使用的 HTTP 条件请求和 Range 请求解析(RFC 7232 / RFC 7233)
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+final class HttpRanges {
+    /**
+     * 合并后的区间超过该数量时忽略 Range 返回整个文件, 避免大量小区间放大响应
+     */
+    static final int MAX_RANGES = 32;
+    private static final String BYTES_UNIT = "bytes=";
+
+    private HttpRanges() {
+    }
+
+    /**
+     * 闭区间 {@code [start, end]}
+     */
+    record Range(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long size) {
+            return "bytes " + start + "-" + end + "/" + size;
+        }
+    }
+
+    /**
+     * 解析 {@code Range} 请求头, 重叠或相邻的区间会被合并并按起始位置排序
+     *
+     * @param header {@code Range} 请求头
+     * @param size   文件大小
+     * @return 需要返回的区间; 返回 null 表示忽略 Range(格式错误或区间过多), 返回整个文件;
+     * 返回空列表表示没有可以满足的区间(416)
+     */
+    static List<Range> parse(String header, long size) {
+        if (header == null || !header.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return null;
+        }
+        List<Range> ranges = new ArrayList<>();
+        try {
+            for (String spec : header.substring(BYTES_UNIT.length()).split(",")) {
+                spec = spec.trim();
+                int dash = spec.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                long start;
+                long end;
+                if (first.isEmpty()) {
+                    // 后缀区间: 最后 n 个字节
+                    long suffix = Long.parseLong(last);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    start = Math.max(size - suffix, 0);
+                    end = size - 1;
+                    if (suffix == 0) {
+                        continue;
+                    }
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    end = Math.min(end, size - 1);
+                }
+                if (start < size) {
+                    ranges.add(new Range(start, end));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        ranges.sort((a, b) -> Long.compare(a.start(), b.start()));
+        List<Range> merged = new ArrayList<>(ranges.size());
+        for (Range range : ranges) {
+            Range previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (previous != null && range.start() <= previous.end() + 1) {
+                merged.set(merged.size() - 1, new Range(previous.start(), Math.max(previous.end(), range.end())));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged.size() > MAX_RANGES ? null : merged;
+    }
+
+    /**
+     * 由文件大小和修改时间生成的强 ETag, 文件内容不变时多次请求得到相同的值, 不需要读取文件
+     */
+    static String etag(long size, long lastModified) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    /**
+     * {@code If-None-Match} 使用弱比较, 忽略 {@code W/} 前缀
+     *
+     * @param header {@code If-None-Match} 请求头, 可以包含多个以逗号分隔的 ETag 或 {@code *}
+     * @param etag   当前的 ETag
+     */
+    static boolean noneMatchFails(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || weak(candidate).equals(weak(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String weak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,365 @@
+package cn.qingweico.io;
+
+import cn.qingweico.concurrent.pool.ThreadPoolBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 基于内存映射的并行分词器
+ * 单词的定义与 {@link FileUtils#readFileToArrayList} 一致: 连续的字母({@link Character#isLetter(int)}),
+ * 直接在 UTF-8 字节上判断, 不会把整个文件解码成一个 {@link String}
+ * - 文件按 {@link #chunkSize} 切块, 块的边界向后对齐到第一个 ASCII 非字母字节, 不会切断单词或多字节字符
+ * - 每个工作线程每次只映射一个块, 内存占用与 {@code 并行度 * chunkSize} 的映射窗口有关, 而与文件大小无关
+ * - {@link #tokenize(Supplier)} 以字节区间回调每个单词, 调用方可以在不创建 {@link String} 的情况下处理单词
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@Slf4j
+public class MappedFileTokenizer {
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int ALIGN_BUFFER_SIZE = 4 * 1024;
+
+    private final Path path;
+    private final int chunkSize;
+    private final int parallelism;
+
+    /**
+     * 单词回调, 同一个实例只会被一个线程调用
+     */
+    @FunctionalInterface
+    public interface TokenSink {
+        /**
+         * 接收一个单词
+         *
+         * @param buffer 只读的映射缓冲区
+         * @param start  单词在缓冲区中的起始位置(包含)
+         * @param end    单词在缓冲区中的结束位置(不包含)
+         */
+        void accept(ByteBuffer buffer, int start, int end);
+    }
+
+    /**
+     * 文件中的一个块
+     *
+     * @param position 块在文件中的起始偏移
+     * @param size     块的字节数
+     */
+    public record Chunk(long position, long size) {
+    }
+
+    public MappedFileTokenizer(Path path) {
+        this(path, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    public MappedFileTokenizer(Path path, int chunkSize, int parallelism) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException(String.format("chunk size must be greater than 0, but was %d", chunkSize));
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(String.format("parallelism must be greater than 0, but was %d", parallelism));
+        }
+        this.path = path;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 并行分词, 每个工作线程创建一个 {@link TokenSink}, 依次处理若干个块
+     *
+     * @param sinkFactory 每个工作线程调用一次
+     * @param <S>         sink 类型
+     * @return 所有工作线程的 sink, 供调用方合并结果
+     */
+    public <S extends TokenSink> List<S> tokenize(Supplier<S> sinkFactory) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<Chunk> chunks = chunks(channel);
+            int workers = Math.max(1, Math.min(parallelism, chunks.size()));
+            List<S> sinks = new ArrayList<>(workers);
+            if (workers == 1) {
+                S sink = sinkFactory.get();
+                for (Chunk chunk : chunks) {
+                    scan(map(channel, chunk), sink);
+                }
+                sinks.add(sink);
+                return sinks;
+            }
+            AtomicInteger next = new AtomicInteger();
+            ExecutorService pool = ThreadPoolBuilder.builder(workers)
+                    .corePoolSize(workers)
+                    .maxPoolSize(workers)
+                    .threadPoolName("mapped-tokenizer")
+                    .build();
+            try {
+                List<Future<S>> futures = new ArrayList<>(workers);
+                for (int w = 0; w < workers; w++) {
+                    futures.add(pool.submit(() -> {
+                        S sink = sinkFactory.get();
+                        int index;
+                        while ((index = next.getAndIncrement()) < chunks.size()) {
+                            scan(map(channel, chunks.get(index)), sink);
+                        }
+                        return sink;
+                    }));
+                }
+                for (Future<S> future : futures) {
+                    sinks.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException uio) {
+                    throw uio;
+                }
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+            return sinks;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 并行分词并将每个单词转为小写 {@link String} 回调
+     *
+     * @param consumer 会被多个线程同时调用, 需要线程安全
+     */
+    public void forEach(Consumer<String> consumer) {
+        tokenize(() -> {
+            byte[] scratch = new byte[64];
+            return (buffer, start, end) -> consumer.accept(toLowerCaseString(buffer, start, end, scratch));
+        });
+    }
+
+    /**
+     * 以 {@link Stream} 的形式返回小写单词, 单词按文件中的顺序排列
+     * 对返回的流调用 {@link Stream#parallel()} 时按块并行
+     * 每个块在被消费时才会映射
+     *
+     * @return 单词流, 使用完毕后无需关闭
+     */
+    public Stream<String> stream() {
+        List<Chunk> chunks;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            chunks = chunks(channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunks.stream().flatMap(this::tokens);
+    }
+
+    /**
+     * 按 {@link #chunkSize} 切分文件, 每个块的结束位置向后对齐到 ASCII 非字母字节
+     *
+     * @param channel 文件通道
+     * @return 切分后的块
+     * @throws IOException 读取文件失败
+     */
+    public List<Chunk> chunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        List<Chunk> chunks = new ArrayList<>((int) (size / chunkSize) + 1);
+        ByteBuffer probe = ByteBuffer.allocate(ALIGN_BUFFER_SIZE);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            end = alignToDelimiter(channel, probe, end, size, start + Integer.MAX_VALUE);
+            chunks.add(new Chunk(start, end - start));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long alignToDelimiter(FileChannel channel, ByteBuffer probe, long position, long size, long limit) throws IOException {
+        long max = Math.min(size, limit);
+        while (position < max) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return max;
+            }
+            for (int i = 0; i < read && position + i < max; i++) {
+                byte b = probe.get(i);
+                if (b >= 0 && !isAsciiLetter(b)) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return max;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, Chunk chunk) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, chunk.position(), chunk.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 扫描整个缓冲区中的单词
+     *
+     * @param buffer 缓冲区, 扫描 [0, limit)
+     * @param sink   单词回调
+     */
+    public static void scan(ByteBuffer buffer, TokenSink sink) {
+        int limit = buffer.limit();
+        int i = 0;
+        while (i < limit) {
+            int c;
+            // 跳过非字母
+            while (i < limit && (c = classify(buffer, i, limit)) < 0) {
+                i -= c;
+            }
+            int start = i;
+            while (i < limit && (c = classify(buffer, i, limit)) > 0) {
+                i += c;
+            }
+            if (i > start) {
+                sink.accept(buffer, start, i);
+            }
+        }
+    }
+
+    /**
+     * 判断 {@code index} 处的 UTF-8 字符是否为字母
+     *
+     * @param buffer 缓冲区
+     * @param index  字符起始位置
+     * @param limit  缓冲区上界
+     * @return 字母返回字符的字节长度, 非字母返回字节长度的相反数
+     */
+    public static int classify(ByteBuffer buffer, int index, int limit) {
+        int lead = buffer.get(index);
+        if (lead >= 0) {
+            return isAsciiLetter(lead) ? 1 : -1;
+        }
+        lead &= 0xFF;
+        int length;
+        int codePoint;
+        if ((lead >> 5) == 0x6) {
+            length = 2;
+            codePoint = lead & 0x1F;
+        } else if ((lead >> 4) == 0xE) {
+            length = 3;
+            codePoint = lead & 0x0F;
+        } else if ((lead >> 3) == 0x1E) {
+            length = 4;
+            codePoint = lead & 0x07;
+        } else {
+            // 孤立的后续字节或非法字节
+            return -1;
+        }
+        if (index + length > limit) {
+            return -1;
+        }
+        for (int k = 1; k < length; k++) {
+            int b = buffer.get(index + k);
+            if ((b & 0xC0) != 0x80) {
+                return -1;
+            }
+            codePoint = (codePoint << 6) | (b & 0x3F);
+        }
+        return Character.isLetter(codePoint) ? length : -length;
+    }
+
+    static boolean isAsciiLetter(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static String toLowerCaseString(ByteBuffer buffer, int start, int end, byte[] scratch) {
+        int length = end - start;
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(start + i);
+            if (b < 0) {
+                ascii = false;
+            } else if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            bytes[i] = b;
+        }
+        if (ascii) {
+            return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8).toLowerCase();
+    }
+
+    private Stream<String> tokens(Chunk chunk) {
+        Iterator<String> iterator = new Iterator<>() {
+            ByteBuffer buffer;
+            final byte[] scratch = new byte[64];
+            int position;
+            String next;
+
+            @Override
+            public boolean hasNext() {
+                if (next != null) {
+                    return true;
+                }
+                if (buffer == null) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                        buffer = map(channel, chunk);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                int limit = buffer.limit();
+                int c;
+                while (position < limit && (c = classify(buffer, position, limit)) < 0) {
+                    position -= c;
+                }
+                int start = position;
+                while (position < limit && (c = classify(buffer, position, limit)) > 0) {
+                    position += c;
+                }
+                if (position > start) {
+                    next = toLowerCaseString(buffer, start, position, scratch);
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String token = next;
+                next = null;
+                return token;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
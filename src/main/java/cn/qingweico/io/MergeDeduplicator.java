@@ -0,0 +1,139 @@
+package cn.qingweico.io;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link FileUtils#mergeFile} 的内容去重
+ * 按内容的 murmur3_128 哈希(与 {@link MergeManifest} 的内容哈希相同)和大小记录已经写出的文件 / entry,
+ * 相同的内容再次出现时不再写入内容, 只写入文件头和一行指向第一次出现位置的引用:
+ * <pre>
+ * ----------a/lib/util.js----------
+ * ==> duplicate of b/lib/util.js
+ * </pre>
+ * 只在写出线程中按输出顺序使用, 不是线程安全的
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+final class MergeDeduplicator {
+    /**
+     * 归档中的 entry 只能顺序读取, 需要先读入内存才能在写出前得到哈希, 超过该大小的 entry 不去重
+     */
+    static final int MAX_ENTRY_SIZE = 1024 * 1024;
+    static final String REFERENCE_PREFIX = "==> duplicate of ";
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final Map<Key, String> seen = new HashMap<>();
+    private int duplicates;
+    private long savedBytes;
+
+    /**
+     * 去重的依据
+     *
+     * @param hash 内容哈希
+     * @param size 内容大小
+     */
+    record Key(HashCode hash, long size) {
+    }
+
+    /**
+     * 读入内存的 entry 开头部分
+     *
+     * @param head 读取的内容, 最多 {@link #MAX_ENTRY_SIZE} + 1 个字节
+     * @param key  完整读入时的去重依据, entry 过大时为 null
+     */
+    record BufferedEntry(byte[] head, Key key) {
+        /**
+         * @param rest 未读取的部分
+         * @return 完整的 entry 内容
+         */
+        InputStream stream(InputStream rest) {
+            InputStream in = new ByteArrayInputStream(head);
+            return key != null ? in : new SequenceInputStream(in, rest);
+        }
+    }
+
+    static Key key(Path file, long size) throws IOException {
+        return new Key(com.google.common.io.Files.asByteSource(file.toFile()).hash(HASH_FUNCTION), size);
+    }
+
+    /**
+     * @param hash {@link MergeManifest} 中记录的内容哈希
+     */
+    static Key key(String hash, long size) {
+        return new Key(HashCode.fromString(hash), size);
+    }
+
+    static BufferedEntry read(InputStream in) throws IOException {
+        byte[] head = in.readNBytes(MAX_ENTRY_SIZE + 1);
+        if (head.length > MAX_ENTRY_SIZE) {
+            return new BufferedEntry(head, null);
+        }
+        return new BufferedEntry(head, new Key(HASH_FUNCTION.hashBytes(head), head.length));
+    }
+
+    /**
+     * 内容已经出现过时写入引用, 不会记录新的内容; 内容写出成功后需要调用 {@link #record} 登记,
+     * 写出失败的内容不会被之后的文件引用
+     *
+     * @param writer 输出
+     * @param key    去重依据
+     * @param name   文件 / entry 的名称
+     * @return 是否写入了引用, 返回 false 时需要调用方写入内容
+     */
+    boolean writeIfDuplicate(BufferedWriter writer, Key key, String name) throws IOException {
+        String first = seen.get(key);
+        if (first == null) {
+            return false;
+        }
+        writer.write("----------" + name + "----------");
+        writer.newLine();
+        writer.write(REFERENCE_PREFIX + first);
+        writer.newLine();
+        writer.newLine();
+        duplicates++;
+        savedBytes += key.size();
+        return true;
+    }
+
+    /**
+     * 登记已经写出的内容, 已经登记过时保留第一次的名称
+     *
+     * @param key  去重依据, 为 null 时忽略
+     * @param name 文件 / entry 的名称
+     */
+    void record(Key key, String name) {
+        if (key != null) {
+            seen.putIfAbsent(key, name);
+        }
+    }
+
+    /**
+     * 只记录了一个内容时返回它的去重依据
+     * 并行解压时每个 entry 先在读取线程中使用单独的实例写入, 再通过这个方法把去重判断推迟到写出线程
+     *
+     * @return 去重依据, 没有记录或记录了多个时返回 null
+     */
+    Key single() {
+        return seen.size() == 1 ? seen.keySet().iterator().next() : null;
+    }
+
+    int duplicates() {
+        return duplicates;
+    }
+
+    long savedBytes() {
+        return savedBytes;
+    }
+}
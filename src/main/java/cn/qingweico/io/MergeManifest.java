@@ -0,0 +1,176 @@
+package cn.qingweico.io;
+
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 增量合并的清单文件, 与合并结果放在同一目录下({@code <out>.manifest})
+ * 记录每个源文件在合并结果中的偏移、长度, 以及源文件的大小、修改时间和内容哈希;
+ * 下次合并时未变化的文件直接从上一次的合并结果中按区间拷贝, 只有变化的文件才会重新读取
+ * <pre>
+ * #version=1
+ * #mode=byteTransfer=false
+ * #total=12345
+ * offset  length  size  mtime  hash  relativePath
+ * </pre>
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@Slf4j
+final class MergeManifest {
+    static final String SUFFIX = ".manifest";
+    private static final String VERSION = "1";
+    private static final String VERSION_KEY = "#version=";
+    private static final String MODE_KEY = "#mode=";
+    private static final String TOTAL_KEY = "#total=";
+
+    private final String mode;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long total;
+
+    /**
+     * 清单中的一条记录
+     *
+     * @param path   相对于源目录的路径
+     * @param offset 在合并结果中的偏移
+     * @param length 在合并结果中的长度
+     * @param size   源文件大小
+     * @param mtime  源文件修改时间(毫秒)
+     * @param hash   源文件内容哈希
+     */
+    record Entry(String path, long offset, long length, long size, long mtime, String hash) {
+    }
+
+    /**
+     * 源文件当前的状态
+     */
+    record FileState(long size, long mtime, String hash) {
+    }
+
+    MergeManifest(String mode) {
+        this.mode = mode;
+    }
+
+    static Path manifestPath(Path out) {
+        return Paths.get(out.toString() + SUFFIX);
+    }
+
+    /**
+     * 读取上一次合并的清单, 只有清单与合并结果完全对应时才可以复用
+     *
+     * @param out  合并结果
+     * @param mode 本次合并的模式, 与上一次不同时不复用
+     * @return 清单, 不可复用时返回 null
+     */
+    static MergeManifest loadReusable(Path out, String mode) {
+        Path manifestPath = manifestPath(out);
+        if (!Files.isRegularFile(manifestPath) || !Files.isRegularFile(out)) {
+            return null;
+        }
+        MergeManifest manifest = new MergeManifest(mode);
+        try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+            String line;
+            boolean versionMatched = false;
+            boolean modeMatched = false;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(VERSION_KEY)) {
+                    versionMatched = VERSION.equals(line.substring(VERSION_KEY.length()));
+                } else if (line.startsWith(MODE_KEY)) {
+                    modeMatched = mode.equals(line.substring(MODE_KEY.length()));
+                } else if (line.startsWith(TOTAL_KEY)) {
+                    manifest.total = Long.parseLong(line.substring(TOTAL_KEY.length()));
+                } else if (!line.isEmpty()) {
+                    String[] columns = line.split("\t", 6);
+                    Entry entry = new Entry(columns[5], Long.parseLong(columns[0]), Long.parseLong(columns[1]),
+                            Long.parseLong(columns[2]), Long.parseLong(columns[3]), columns[4]);
+                    manifest.entries.put(entry.path(), entry);
+                }
+            }
+            if (!versionMatched || !modeMatched || manifest.total != Files.size(out)) {
+                log.info("清单 {} 与合并结果或合并参数不一致, 全量合并", manifestPath);
+                return null;
+            }
+            return manifest;
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取清单 {} 失败, 全量合并, {}", manifestPath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 源文件与清单记录一致时返回可以复用的记录
+     * 大小和修改时间都没变直接复用, 只有修改时间变化时再比较内容哈希
+     *
+     * @param relativePath 相对路径
+     * @param state        源文件当前的大小和修改时间
+     * @param file         源文件, 需要计算哈希时读取
+     * @return 可复用的记录, 不可复用返回 null
+     */
+    Entry reusable(String relativePath, FileState state, Path file) throws IOException {
+        Entry entry = entries.get(relativePath);
+        if (entry == null || entry.size() != state.size()) {
+            return null;
+        }
+        if (entry.mtime() == state.mtime() || entry.hash().equals(hash(file))) {
+            return entry;
+        }
+        return null;
+    }
+
+    void add(String relativePath, long offset, long length, FileState state) {
+        if (relativePath.indexOf('\n') >= 0 || relativePath.indexOf('\r') >= 0) {
+            // 无法记录到按行分隔的清单中, 下次重新合并
+            return;
+        }
+        entries.put(relativePath, new Entry(relativePath, offset, length, state.size(), state.mtime(), state.hash()));
+    }
+
+    /**
+     * 先写入临时文件再替换, 避免中断时留下不完整的清单
+     *
+     * @param out   合并结果
+     * @param total 合并结果的总长度
+     */
+    void write(Path out, long total) throws IOException {
+        Path manifestPath = manifestPath(out);
+        Path tmp = Paths.get(manifestPath + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write(VERSION_KEY + VERSION);
+            writer.newLine();
+            writer.write(MODE_KEY + mode);
+            writer.newLine();
+            writer.write(TOTAL_KEY + total);
+            writer.newLine();
+            for (Entry entry : entries.values()) {
+                writer.write(entry.offset() + "\t" + entry.length() + "\t" + entry.size() + "\t"
+                        + entry.mtime() + "\t" + entry.hash() + "\t" + entry.path());
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static FileState state(Path file) throws IOException {
+        return new FileState(Files.size(file), Files.getLastModifiedTime(file).toMillis(), null);
+    }
+
+    static FileState withHash(FileState state, Path file) throws IOException {
+        return new FileState(state.size(), state.mtime(), hash(file));
+    }
+
+    static String hash(Path file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.murmur3_128()).toString();
+    }
+}
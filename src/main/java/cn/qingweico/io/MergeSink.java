@@ -0,0 +1,156 @@
+package cn.qingweico.io;
+
+import com.google.common.io.ByteStreams;
+import org.springframework.util.FastByteArrayOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link FileUtils#mergeFile} 的输出
+ * 文本(文件头、逐行解码的内容)通过 {@link #writer()} 写入, 不需要解码的文件内容通过 {@link #transfer(Path, long, long)} 按字节追加
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+abstract class MergeSink {
+
+    /**
+     * 当前的文本输出, {@link #transfer} 之后可能会变化, 需要重新获取
+     *
+     * @return {@link BufferedWriter}
+     */
+    abstract BufferedWriter writer();
+
+    /**
+     * 将文件从 {@code position} 开始的 {@code size} 个字节原样追加到输出
+     *
+     * @param path     文件
+     * @param position 起始偏移
+     * @param size     字节数
+     * @throws IOException 读取或写入失败
+     */
+    abstract void transfer(Path path, long position, long size) throws IOException;
+
+    /**
+     * 直接写入输出文件
+     * 有 {@link FileChannel} 时使用 {@link FileChannel#transferTo} 由内核完成拷贝, 否则退化为流拷贝
+     */
+    static final class Direct extends MergeSink {
+        private final BufferedWriter writer;
+        private final OutputStream stream;
+        private final FileChannel channel;
+
+        /**
+         * @param writer  包装了 {@code stream} 的文本输出
+         * @param stream  字节输出
+         * @param channel {@code stream} 最终写入的通道, 可以为 null
+         */
+        Direct(BufferedWriter writer, OutputStream stream, FileChannel channel) {
+            this.writer = writer;
+            this.stream = stream;
+            this.channel = channel;
+        }
+
+        @Override
+        BufferedWriter writer() {
+            return writer;
+        }
+
+        OutputStream stream() throws IOException {
+            writer.flush();
+            return stream;
+        }
+
+        /**
+         * @return 已经写入输出文件的字节数, 需要构造时传入 {@link FileChannel}
+         */
+        long position() throws IOException {
+            writer.flush();
+            stream.flush();
+            return channel.position();
+        }
+
+        @Override
+        void transfer(Path path, long position, long size) throws IOException {
+            writer.flush();
+            stream.flush();
+            if (channel == null) {
+                try (var in = Files.newInputStream(path)) {
+                    in.skipNBytes(position);
+                    ByteStreams.copy(ByteStreams.limit(in, size), stream);
+                }
+                return;
+            }
+            try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                long end = position + size;
+                while (position < end) {
+                    long transferred = in.transferTo(position, end - position, channel);
+                    if (transferred <= 0) {
+                        // 文件在合并过程中被截断
+                        break;
+                    }
+                    position += transferred;
+                }
+            }
+        }
+    }
+
+    /**
+     * 并行合并时在读取线程中使用, 文本暂存在内存中, 需要按字节追加的文件只记录路径和长度,
+     * 等到写出时再交给 {@link Direct#transfer} 处理, 不占用缓冲内存
+     */
+    static final class Deferred extends MergeSink {
+        private final List<Object> parts = new ArrayList<>();
+        private FastByteArrayOutputStream current = new FastByteArrayOutputStream();
+        private BufferedWriter writer = newWriter(current);
+
+        private static BufferedWriter newWriter(OutputStream out) {
+            return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        BufferedWriter writer() {
+            return writer;
+        }
+
+        @Override
+        void transfer(Path path, long position, long size) throws IOException {
+            writer.flush();
+            parts.add(current);
+            parts.add(new FileRange(path, position, size));
+            current = new FastByteArrayOutputStream();
+            writer = newWriter(current);
+        }
+
+        /**
+         * 结束写入, 之后只能调用 {@link #writeTo}
+         */
+        void finish() throws IOException {
+            writer.flush();
+            parts.add(current);
+        }
+
+        void writeTo(Direct out) throws IOException {
+            for (Object part : parts) {
+                if (part instanceof FastByteArrayOutputStream bytes) {
+                    bytes.writeTo(out.stream());
+                } else if (part instanceof FileRange range) {
+                    out.transfer(range.path(), range.position(), range.size());
+                }
+            }
+        }
+
+        private record FileRange(Path path, long position, long size) {
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package cn.qingweico.io;
+
+import cn.qingweico.concurrent.pool.ThreadPoolBuilder;
+import cn.qingweico.constants.Constants;
+import cn.qingweico.model.MergeFileParam;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * 多模式串的并行内容查找(类似 grep -F)
+ * 所有模式串编译成一个字节级的 Aho–Corasick 自动机({@link AhoCorasick}), 每个文件只扫描一遍, 与模式串的个数无关,
+ * 直接在字节上匹配, 不需要把文件解码成 {@link String}
+ * - 不超过 {@link BufferPool#MAX_SIZE} 的文件读入 {@link BufferPool} 中的缓冲区, 更大的文件按 {@link #chunkSize} 切块后内存映射
+ * - 每个块由线程池中的一个线程扫描, 块的扫描起点向前多读 {@code 最长模式串 - 1} 个字节, 跨越块边界的匹配不会遗漏, 也不会重复
+ * - 扫描结果按文件、块的顺序在调用线程中回调, 同一个文件中的匹配按结束位置排序;
+ * 内存中最多暂存 parallelism * 2 个块的结果, 超过时先等待并回调最早的块
+ * 匹配的偏移是模式串第一个字节在文件中的偏移, 行号从 1 开始, 按 {@code \n} 计算
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class MultiPatternSearcher {
+    public static final int DEFAULT_CHUNK_SIZE = 16 * Constants.KB * Constants.KB;
+    private static final int SLICE_SIZE = 64 * Constants.KB;
+
+    private final AhoCorasick automaton;
+    private final int chunkSize;
+    private final int parallelism;
+    private final boolean firstMatchPerFile;
+
+    /**
+     * 一次匹配
+     *
+     * @param file    文件
+     * @param offset  匹配在文件中的字节偏移
+     * @param line    匹配起始位置所在的行号, 从 1 开始
+     * @param pattern 匹配的模式串
+     */
+    public record Match(Path file, long offset, long line, String pattern) {
+    }
+
+    /**
+     * 查找的统计
+     *
+     * @param files        扫描的文件数
+     * @param bytes        扫描的字节数
+     * @param matches      回调的匹配数
+     * @param elapsedNanos 耗时(纳秒)
+     */
+    public record Result(int files, long bytes, long matches, long elapsedNanos) {
+        /**
+         * @return 吞吐量(字节/秒)
+         */
+        public double throughput() {
+            return elapsedNanos == 0 ? 0 : bytes * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    /**
+     * 块中的匹配, 行号相对于扫描起点
+     *
+     * @param offset   匹配在文件中的字节偏移
+     * @param newlines 扫描起点到匹配起始位置之间的换行符个数
+     * @param pattern  模式串下标
+     */
+    private record LocalMatch(long offset, long newlines, int pattern) {
+    }
+
+    /**
+     * 一个块的扫描结果
+     *
+     * @param file            文件
+     * @param first           是否是文件的第一个块
+     * @param bytes           块的字节数(不包括向前多读的部分)
+     * @param overlapNewlines 向前多读的部分中的换行符个数
+     * @param newlines        块中的换行符个数(不包括向前多读的部分)
+     * @param matches         匹配
+     */
+    private record ChunkResult(Path file, boolean first, long bytes, long overlapNewlines, long newlines,
+                               List<LocalMatch> matches) {
+    }
+
+    private MultiPatternSearcher(Builder builder) {
+        this.automaton = new AhoCorasick(builder.patterns, builder.ignoreCase);
+        this.chunkSize = builder.chunkSize;
+        this.parallelism = builder.parallelism;
+        this.firstMatchPerFile = builder.firstMatchPerFile;
+        if (automaton.maxLength() >= chunkSize) {
+            throw new IllegalArgumentException(String.format("pattern length %d must be less than chunk size %d",
+                    automaton.maxLength(), chunkSize));
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return 去重后的模式串
+     */
+    public List<String> patterns() {
+        return automaton.patterns();
+    }
+
+    /**
+     * 查找目录下(或单个文件中)的所有文件
+     * 目录已被 {@link DirectoryIndex} 索引时从索引中列出文件
+     *
+     * @param root     目录或文件
+     * @param consumer 在调用线程中按文件路径的顺序回调
+     * @return 统计
+     */
+    public Result search(Path root, Consumer<Match> consumer) {
+        if (Files.isRegularFile(root)) {
+            return search(Collections.singletonList(root), consumer);
+        }
+        DirectoryIndex index = DirectoryIndex.find(root);
+        List<Path> files = index != null ? index.list(root) : new ParallelFileWalker(MergeFileParam.create()).list(root);
+        return search(files, consumer);
+    }
+
+    /**
+     * 查找指定的文件, 无法读取的文件(如已被删除)跳过
+     *
+     * @param files    文件
+     * @param consumer 在调用线程中按 {@code files} 的顺序回调
+     * @return 统计
+     */
+    public Result search(List<Path> files, Consumer<Match> consumer) {
+        long start = System.nanoTime();
+        ExecutorService scanners = ThreadPoolBuilder.builder(parallelism * 2)
+                .corePoolSize(parallelism)
+                .maxPoolSize(parallelism)
+                .threadPoolName("pattern-search")
+                .build();
+        Deque<Future<ChunkResult>> pending = new ArrayDeque<>(parallelism * 2);
+        Emitter emitter = new Emitter(consumer);
+        int scanned = 0;
+        try {
+            for (Path file : files) {
+                long size;
+                try {
+                    size = Files.size(file);
+                } catch (IOException e) {
+                    log.debug("读取文件 {} 失败, {}", file, e.getMessage());
+                    continue;
+                }
+                scanned++;
+                long position = 0;
+                do {
+                    while (pending.size() >= parallelism * 2) {
+                        emitter.accept(pending.poll().get());
+                    }
+                    long chunkStart = position;
+                    long chunkEnd = Math.min(position + chunkSize, size);
+                    pending.add(scanners.submit(() -> scan(file, size, chunkStart, chunkEnd)));
+                    position = chunkEnd;
+                } while (position < size);
+            }
+            while (!pending.isEmpty()) {
+                emitter.accept(pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException(e.getMessage()));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException uio) {
+                throw uio;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<ChunkResult> future : pending) {
+                future.cancel(true);
+            }
+            scanners.shutdownNow();
+        }
+        return new Result(scanned, emitter.bytes, emitter.matches, System.nanoTime() - start);
+    }
+
+    /**
+     * 在工作线程中扫描 {@code [chunkStart, chunkEnd)}
+     * 工作线程随每次查找创建和关闭, 缓冲区直接从 {@link BufferPool} 的共享池借出, 不留在线程的本地缓存中
+     */
+    private ChunkResult scan(Path file, long size, long chunkStart, long chunkEnd) {
+        boolean first = chunkStart == 0;
+        if (size == 0) {
+            return new ChunkResult(file, true, 0, 0, 0, Collections.emptyList());
+        }
+        long windowStart = Math.max(0, chunkStart - (automaton.maxLength() - 1));
+        int overlap = (int) (chunkStart - windowStart);
+        int length = (int) (chunkEnd - windowStart);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (length <= BufferPool.MAX_SIZE) {
+                try (BufferPool.Lease<byte[]> lease = BufferPool.DEFAULT.sharedHeap(length)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(lease.get(), 0, length);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, windowStart + buffer.position()) < 0) {
+                            // 文件在查找过程中被截断
+                            break;
+                        }
+                    }
+                    return scan(file, first, buffer, windowStart, overlap, buffer.position());
+                }
+            }
+            return scan(file, first, channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length),
+                    windowStart, overlap, length);
+        } catch (NoSuchFileException e) {
+            log.debug("文件 {} 已被删除", file);
+            return new ChunkResult(file, first, 0, 0, 0, Collections.emptyList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ChunkResult scan(Path file, boolean first, ByteBuffer buffer, long windowStart, int overlap, int length) {
+        List<LocalMatch> matches = new ArrayList<>();
+        AhoCorasick.MatchSink sink = (pattern, end, newlines) -> {
+            matches.add(new LocalMatch(windowStart + end - automaton.length(pattern) + 1,
+                    newlines - automaton.newlines(pattern), pattern));
+            return !firstMatchPerFile;
+        };
+        AhoCorasick.Scanner scanner = automaton.scanner();
+        boolean completed;
+        if (buffer.hasArray()) {
+            completed = scanner.feed(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + length, 0, overlap, sink);
+        } else {
+            // 映射的缓冲区按段复制到堆内数组中扫描, 数组访问比逐字节调用 ByteBuffer#get 快
+            completed = true;
+            try (BufferPool.Lease<byte[]> lease = BufferPool.DEFAULT.sharedHeap(SLICE_SIZE)) {
+                byte[] slice = lease.get();
+                for (int position = 0; position < length && completed; position += slice.length) {
+                    int n = Math.min(slice.length, length - position);
+                    buffer.get(position, slice, 0, n);
+                    completed = scanner.feed(slice, 0, n, position, overlap, sink);
+                }
+            }
+        }
+        long overlapNewlines = countNewlines(buffer, 0, overlap);
+        // 提前停止扫描时需要单独统计块中的换行符
+        long newlines = completed ? scanner.lines() - overlapNewlines : countNewlines(buffer, overlap, length);
+        return new ChunkResult(file, first, Math.max(0, length - overlap), overlapNewlines, newlines, matches);
+    }
+
+    private static long countNewlines(ByteBuffer buffer, int from, int to) {
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 在调用线程中按顺序把块中的相对行号换算成文件中的行号并回调
+     */
+    private final class Emitter {
+        private final Consumer<Match> consumer;
+        private long lineBase;
+        private boolean fileMatched;
+        private long bytes;
+        private long matches;
+
+        Emitter(Consumer<Match> consumer) {
+            this.consumer = consumer;
+        }
+
+        void accept(ChunkResult chunk) {
+            if (chunk.first()) {
+                lineBase = 0;
+                fileMatched = false;
+            }
+            bytes += chunk.bytes();
+            for (LocalMatch match : chunk.matches()) {
+                if (firstMatchPerFile && fileMatched) {
+                    break;
+                }
+                fileMatched = true;
+                matches++;
+                consumer.accept(new Match(chunk.file(), match.offset(),
+                        lineBase - chunk.overlapNewlines() + match.newlines() + 1, automaton.pattern(match.pattern())));
+            }
+            lineBase += chunk.newlines();
+        }
+    }
+
+    public static class Builder {
+        private List<String> patterns = new ArrayList<>();
+        private boolean ignoreCase = false;
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private boolean firstMatchPerFile = false;
+
+        public Builder patterns(String... patterns) {
+            this.patterns = Arrays.asList(patterns);
+            return this;
+        }
+
+        public Builder patterns(List<String> patterns) {
+            this.patterns = patterns;
+            return this;
+        }
+
+        /**
+         * 是否忽略 ASCII 字母的大小写
+         */
+        public Builder ignoreCase(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+            return this;
+        }
+
+        public Builder chunkSize(int chunkSize) {
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("chunkSize must be greater than 0");
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be greater than 0");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * 每个文件只回调第一个匹配(类似 grep -l), 块中找到第一个匹配后停止扫描
+         */
+        public Builder firstMatchPerFile(boolean firstMatchPerFile) {
+            this.firstMatchPerFile = firstMatchPerFile;
+            return this;
+        }
+
+        public MultiPatternSearcher build() {
+            if (patterns == null || patterns.isEmpty()) {
+                throw new IllegalArgumentException("at least one pattern is required");
+            }
+            return new MultiPatternSearcher(this);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package cn.qingweico.io;
+
+import cn.qingweico.model.MergeFileParam;
+import jodd.util.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+
+/**
+ * 基于 {@link ForkJoinPool} 的并行目录遍历
+ * 每个目录是一个任务, 列出目录时遇到子目录立即 fork 出新的任务, 由多个线程同时读取不同的目录;
+ * 过滤条件来自 {@link MergeFileParam}, 被排除的目录在进入之前就被剪掉(不会再列出其中的任何文件),
+ * 而不是像 {@link Files#walk} + filter 那样遍历完整棵树后再逐个比较路径
+ * - 被排除的目录: 目录路径以 {@link MergeFileParam#getIgnoredDirs()} 中的某一项结尾(按路径片段比较, 如 node_modules、.git)
+ * - 被排除的文件: 文件名等于 {@link MergeFileParam#getIgnoredFiles()} 中的某一项, 或以 {@link MergeFileParam#getIgnoredFileSuffixes()} 中的某一项结尾
+ * - 与 {@link Files#walk} 一样不进入符号链接指向的目录, 指向普通文件的符号链接按普通文件处理
+ * - 默认无法读取的目录记录警告后跳过, 构造时指定 {@code failOnError} 时与 {@link Files#walk} 一样抛出异常
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@Slf4j
+public class ParallelFileWalker {
+    private final MergeFileParam filter;
+    private final int parallelism;
+    private final boolean failOnError;
+
+    public ParallelFileWalker(MergeFileParam filter) {
+        this(filter, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param filter      过滤条件, 只使用其中的 ignoredDirs、ignoredFiles、ignoredFileSuffixes
+     * @param parallelism 同时读取目录的线程数
+     */
+    public ParallelFileWalker(MergeFileParam filter, int parallelism) {
+        this(filter, parallelism, false);
+    }
+
+    /**
+     * @param filter      过滤条件, 只使用其中的 ignoredDirs、ignoredFiles、ignoredFileSuffixes
+     * @param parallelism 同时读取目录的线程数
+     * @param failOnError 读取目录失败时是否抛出 {@link UncheckedIOException}, 为 false 时记录警告后跳过该目录
+     */
+    public ParallelFileWalker(MergeFileParam filter, int parallelism, boolean failOnError) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(String.format("parallelism must be greater than 0, but was %d", parallelism));
+        }
+        this.filter = filter;
+        this.parallelism = parallelism;
+        this.failOnError = failOnError;
+    }
+
+    /**
+     * 遍历目录下所有未被排除的普通文件
+     * 同一个目录下的文件由同一个线程按目录列出的顺序回调
+     *
+     * @param root    根目录, 本身不会被排除
+     * @param visitor 文件及其属性, 会被多个线程同时调用, 需要线程安全
+     * @throws UncheckedIOException 根目录不是目录, 或者指定了 {@code failOnError} 时读取目录失败
+     */
+    public void walk(Path root, BiConsumer<Path, BasicFileAttributes> visitor) {
+        if (!Files.isDirectory(root)) {
+            throw new UncheckedIOException(new IOException(String.format("%s is not a directory", root)));
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(root, visitor));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param root 根目录
+     * @return 所有未被排除的普通文件, 按路径排序
+     */
+    public List<Path> list(Path root) {
+        ConcurrentLinkedQueue<Path> files = new ConcurrentLinkedQueue<>();
+        walk(root, (path, attributes) -> files.add(path));
+        List<Path> sorted = new ArrayList<>(files);
+        sorted.sort(null);
+        return sorted;
+    }
+
+    /**
+     * 按所在目录分组, 目录按路径排序, 目录内的文件保持目录列出的顺序
+     *
+     * @param root 根目录
+     * @return 目录 -> 文件
+     */
+    public TreeMap<Path, List<Path>> groupByDirectory(Path root) {
+        Map<Path, List<Path>> groups = new ConcurrentHashMap<>();
+        // 同一个目录只会被一个任务列出, 每个 List 只有一个线程写入
+        walk(root, (path, attributes) -> groups.computeIfAbsent(path.getParent(), k -> new ArrayList<>()).add(path));
+        return new TreeMap<>(groups);
+    }
+
+    private boolean isExcludedDir(Path dir) {
+        List<String> ignoredDirs = filter.getIgnoredDirs();
+        if (ignoredDirs == null) {
+            return false;
+        }
+        // 实际使用时, ignoredDirs不会太多, 没必要使用Set
+        for (String ignoredDir : ignoredDirs) {
+            if (dir.endsWith(ignoredDir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isExcludedFile(Path path) {
+        String filename = path.getFileName().toString();
+        List<String> ignoredFiles = filter.getIgnoredFiles();
+        if (ignoredFiles != null) {
+            for (String ignoredFile : ignoredFiles) {
+                if (StringUtil.equals(filename, ignoredFile)) {
+                    return true;
+                }
+            }
+        }
+        List<String> ignoredFileSuffixes = filter.getIgnoredFileSuffixes();
+        if (ignoredFileSuffixes != null) {
+            String lowerCase = filename.toLowerCase();
+            for (String ignoredFileSuffix : ignoredFileSuffixes) {
+                if (lowerCase.endsWith(ignoredFileSuffix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("serial")
+    private final class DirectoryTask extends RecursiveAction {
+        private final Path dir;
+        private final BiConsumer<Path, BasicFileAttributes> visitor;
+
+        DirectoryTask(Path dir, BiConsumer<Path, BasicFileAttributes> visitor) {
+            this.dir = dir;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                for (Path child : children) {
+                    BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isSymbolicLink()) {
+                        attributes = followLink(child);
+                        if (attributes == null || attributes.isDirectory()) {
+                            continue;
+                        }
+                    }
+                    if (attributes.isDirectory()) {
+                        if (!isExcludedDir(child)) {
+                            DirectoryTask subtask = new DirectoryTask(child, visitor);
+                            subtask.fork();
+                            subtasks.add(subtask);
+                        }
+                    } else if (attributes.isRegularFile() && !isExcludedFile(child)) {
+                        visitor.accept(child, attributes);
+                    }
+                }
+            } catch (IOException e) {
+                if (failOnError) {
+                    throw new UncheckedIOException(e);
+                }
+                log.warn("读取目录 {} 失败, 跳过, {}", dir, e.getMessage());
+            }
+            for (DirectoryTask subtask : subtasks) {
+                subtask.join();
+            }
+        }
+
+        private BasicFileAttributes followLink(Path link) {
+            try {
+                return Files.readAttributes(link, BasicFileAttributes.class);
+            } catch (IOException e) {
+                // 失效的符号链接
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package cn.qingweico.io;
+
+import cn.qingweico.concurrent.pool.ThreadPoolBuilder;
+import cn.qingweico.constants.Constants;
+import org.springframework.util.FastByteArrayOutputStream;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程分块压缩的 gzip 输出流(与 pigz 的做法相同)
+ * 写入的内容按 {@link #DEFAULT_BLOCK_SIZE} 分块, 每块由线程池中的一个线程独立压缩成 raw deflate 数据:
+ * - 以上一块的最后 32KB 作为预设字典, 压缩率与单线程压缩接近
+ * - 除最后一块外都以 {@link Deflater#SYNC_FLUSH} 结束(字节对齐, 不设置 BFINAL), 多块按顺序直接拼接就是一个完整的 deflate 流
+ * - CRC32 在写入线程中按顺序计算
+ * 输出是只有一个 member 的标准 gzip 格式, 可以用 {@link java.util.zip.GZIPInputStream}、gzip -d 等任意实现解压
+ * 内存中最多暂存 parallelism * 2 个块的压缩任务, 超过时先等待并写出最早的块
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 256 * Constants.KB;
+    private static final int DICTIONARY_SIZE = 32 * Constants.KB;
+    private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final int level;
+    private final ExecutorService compressors;
+    private final int maxPending;
+    private final Deque<Future<FastByteArrayOutputStream>> pending;
+    private final CRC32 crc = new CRC32();
+    private byte[] block;
+    private int count;
+    private byte[] dictionary;
+    private long totalIn;
+    private boolean closed;
+
+    /**
+     * @param out 输出, 关闭时一起关闭
+     */
+    public ParallelGzipOutputStream(OutputStream out) {
+        this(out, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param out         输出, 关闭时一起关闭
+     * @param parallelism 压缩线程数
+     */
+    public ParallelGzipOutputStream(OutputStream out, int parallelism) {
+        this(out, parallelism, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param out         输出, 关闭时一起关闭
+     * @param parallelism 压缩线程数
+     * @param blockSize   每块的大小(字节)
+     * @param level       压缩级别, 同 {@link Deflater#setLevel(int)}
+     */
+    public ParallelGzipOutputStream(OutputStream out, int parallelism, int blockSize, int level) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(String.format("parallelism must be greater than 0, but was %d", parallelism));
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException(String.format("blockSize must be greater than 0, but was %d", blockSize));
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.level = level;
+        this.maxPending = parallelism * 2;
+        this.pending = new ArrayDeque<>(maxPending);
+        this.compressors = ThreadPoolBuilder.builder(maxPending)
+                .corePoolSize(parallelism)
+                .maxPoolSize(parallelism)
+                .threadPoolName("parallel-gzip")
+                .build();
+        this.block = new byte[blockSize];
+        try {
+            out.write(HEADER);
+        } catch (IOException e) {
+            compressors.shutdownNow();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        crc.update(b, off, len);
+        totalIn += len;
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize) {
+                submit(false);
+            }
+        }
+    }
+
+    /**
+     * 只写出已经压缩完成的块, 不等待正在压缩的块, 当前未满的块仍然留在缓冲区中(与未开启 syncFlush 的
+     * {@link java.util.zip.GZIPOutputStream} 一样, flush 不保证已写入的数据都能被解压出来)
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!pending.isEmpty() && pending.peek().isDone()) {
+            writeHead();
+        }
+        out.flush();
+    }
+
+    /**
+     * 压缩最后一块, 写出所有块和 gzip 尾部(CRC32 和原始长度), 然后关闭输出
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // 最后一块可能为空, 仍然需要一个带 BFINAL 的块结束 deflate 流
+            submit(true);
+            while (!pending.isEmpty()) {
+                writeHead();
+            }
+            writeIntLe((int) crc.getValue());
+            writeIntLe((int) totalIn);
+            out.flush();
+        } finally {
+            for (Future<FastByteArrayOutputStream> future : pending) {
+                future.cancel(true);
+            }
+            compressors.shutdownNow();
+            out.close();
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        while (pending.size() >= maxPending) {
+            writeHead();
+        }
+        byte[] input = block;
+        int length = count;
+        byte[] preset = dictionary;
+        if (!last) {
+            dictionary = Arrays.copyOfRange(input, Math.max(0, length - DICTIONARY_SIZE), length);
+            block = new byte[blockSize];
+            count = 0;
+        }
+        pending.add(compressors.submit(() -> compress(input, length, preset, last)));
+    }
+
+    private FastByteArrayOutputStream compress(byte[] input, int length, byte[] preset, boolean last) throws IOException {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (preset != null) {
+                deflater.setDictionary(preset);
+            }
+            deflater.setInput(input, 0, length);
+            FastByteArrayOutputStream compressed = new FastByteArrayOutputStream(Math.max(length / 2, 64));
+            byte[] buffer = new byte[64 * Constants.KB];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, n);
+                }
+            } else {
+                // 输出缓冲区被写满时需要继续调用, 直到输入全部压缩并对齐到字节边界
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return compressed;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeHead() throws IOException {
+        try {
+            pending.poll().get().writeTo(out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void writeIntLe(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+        out.write((value >>> 16) & 0xff);
+        out.write((value >>> 24) & 0xff);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
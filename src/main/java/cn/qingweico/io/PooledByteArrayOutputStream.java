@@ -0,0 +1,174 @@
+package cn.qingweico.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 使用 {@link BufferPool} 中的缓冲区暂存数据的 {@link java.io.ByteArrayOutputStream}
+ * 数据按块保存, 容量不足时再借一块(大小翻倍, 最大 {@link BufferPool#MAX_SIZE}), 扩容时不需要复制已经写入的数据,
+ * 关闭时所有块归还到池中, 关闭后不能再使用; 不是线程安全的
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+public class PooledByteArrayOutputStream extends OutputStream {
+    private final BufferPool pool;
+    private final List<BufferPool.Lease<byte[]>> chunks = new ArrayList<>();
+    private byte[] current;
+    private int position;
+    private int size;
+    private boolean closed;
+
+    public PooledByteArrayOutputStream() {
+        this(BufferPool.DEFAULT);
+    }
+
+    public PooledByteArrayOutputStream(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        current[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if ((off | len | (b.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            ensureCapacity(len);
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(b, off, current, position, n);
+            position += n;
+            size += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 读取输入流直到末尾, 直接读入池中借出的块, 不经过中间缓冲区
+     *
+     * @param in 输入流, 不会被关闭
+     * @return 读取的字节数
+     */
+    public long readFrom(InputStream in) throws IOException {
+        long total = 0;
+        for (; ; ) {
+            ensureCapacity(1);
+            int n = in.read(current, position, current.length - position);
+            if (n < 0) {
+                return total;
+            }
+            position += n;
+            size += n;
+            total += n;
+        }
+    }
+
+    /**
+     * @return 已写入的字节数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 已写入内容的副本
+     */
+    public byte[] toByteArray() {
+        ensureOpen();
+        byte[] result = new byte[size];
+        int offset = 0;
+        for (BufferPool.Lease<byte[]> chunk : chunks) {
+            int n = Math.min(chunk.get().length, size - offset);
+            System.arraycopy(chunk.get(), 0, result, offset, n);
+            offset += n;
+        }
+        return result;
+    }
+
+    /**
+     * @return 按平台默认字符集解码, 与 {@link java.io.ByteArrayOutputStream#toString()} 相同
+     */
+    @Override
+    public String toString() {
+        return toString(Charset.defaultCharset());
+    }
+
+    public String toString(Charset charset) {
+        ensureOpen();
+        if (chunks.size() == 1) {
+            return new String(current, 0, size, charset);
+        }
+        return new String(toByteArray(), charset);
+    }
+
+    /**
+     * 把已写入的内容写到另一个输出流
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        ensureOpen();
+        int remaining = size;
+        for (BufferPool.Lease<byte[]> chunk : chunks) {
+            int n = Math.min(chunk.get().length, remaining);
+            out.write(chunk.get(), 0, n);
+            remaining -= n;
+        }
+    }
+
+    /**
+     * 清空已写入的内容, 保留第一块, 其余块归还到池中
+     */
+    public void reset() {
+        ensureOpen();
+        while (chunks.size() > 1) {
+            chunks.remove(chunks.size() - 1).close();
+        }
+        current = chunks.isEmpty() ? null : chunks.get(0).get();
+        position = 0;
+        size = 0;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (BufferPool.Lease<byte[]> chunk : chunks) {
+            chunk.close();
+        }
+        chunks.clear();
+        current = null;
+    }
+
+    private void ensureCapacity(int required) {
+        ensureOpen();
+        if (current != null && position < current.length) {
+            return;
+        }
+        if (size + (long) required > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Required array size too large");
+        }
+        int capacity = current == null ? BufferPool.MIN_SIZE : Math.min(current.length * 2, BufferPool.MAX_SIZE);
+        BufferPool.Lease<byte[]> chunk = pool.heap(capacity);
+        chunks.add(chunk);
+        current = chunk.get();
+        position = 0;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package cn.qingweico.io;
+
+import cn.qingweico.concurrent.pool.ThreadPoolBuilder;
+import cn.qingweico.constants.Constants;
+import cn.qingweico.convert.ByteUnitConverter;
+import cn.qingweico.supplier.Generator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线生成指定大小的测试数据文件
+ * - 内容来自 {@link Generator}, 每次生成的元素后追加 {@link Builder#separator}, 在当前线程中预先编码成一个 {@link Builder#blockSize} 大小的直接缓冲区
+ * - 文件先通过 {@link RandomAccessFile#setLength} 预分配到目标大小, 再按块对齐切分成若干区间,
+ * 由多个线程同时把同一个缓冲区重复地按位置写入({@code pwrite}), 写入过程中不需要再调用 {@link Generator}, 也不需要查询文件长度
+ * - 块中只放入完整的元素和分隔符, 放不下时剩余空间用单字节填充, 不会拆开多字节字符
+ * - 文件大小精确等于目标大小, 不足一块的末尾单独按剩余大小生成一块, 不会截断元素
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@Slf4j
+public final class SyntheticFileGenerator {
+    public static final int DEFAULT_BLOCK_SIZE = 4 * Constants.KB * Constants.KB;
+    /**
+     * 连续多少次 {@link Generator#next()} 没有产生任何字节时认为生成器不可用
+     */
+    private static final int MAX_EMPTY_ELEMENTS = 1024;
+
+    private final Generator<? extends CharSequence> generator;
+    private final Charset charset;
+    private final String separator;
+    private final int blockSize;
+    private final int parallelism;
+
+    /**
+     * 一个文件的生成结果
+     *
+     * @param file         文件
+     * @param bytes        文件大小
+     * @param elapsedNanos 耗时(纳秒)
+     */
+    public record Result(Path file, long bytes, long elapsedNanos) {
+        /**
+         * @return 写入吞吐量(字节/秒)
+         */
+        public double throughput() {
+            return bytes * 1e9 / Math.max(elapsedNanos, 1L);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s, size=%s, elapsed=%dms, throughput=%s/s", file, ByteUnitConverter.convert(bytes),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), ByteUnitConverter.convert((long) throughput()));
+        }
+    }
+
+    private SyntheticFileGenerator(Builder builder) {
+        if (builder.generator == null) {
+            throw new IllegalArgumentException("generator must not be null");
+        }
+        this.generator = builder.generator;
+        this.charset = builder.charset;
+        this.separator = builder.separator;
+        this.blockSize = builder.blockSize;
+        this.parallelism = builder.parallelism;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 生成一个文件, 已存在时覆盖
+     *
+     * @param file 文件
+     * @param size 目标大小(字节)
+     * @return 生成结果
+     * @throws IOException 写入失败
+     */
+    public Result generate(Path file, long size) throws IOException {
+        ExecutorService writers = newWriters();
+        try {
+            return generate(file, size, writers);
+        } finally {
+            writers.shutdown();
+        }
+    }
+
+    /**
+     * 在目录下生成多个相同大小的文件, 所有文件共用一组写入线程
+     *
+     * @param dir       目录, 不存在时自动创建
+     * @param size      每个文件的目标大小(字节)
+     * @param filenames 文件名
+     * @return 每个文件的生成结果
+     * @throws IOException 写入失败
+     */
+    public List<Result> generate(Path dir, long size, String... filenames) throws IOException {
+        Files.createDirectories(dir);
+        List<Result> results = new ArrayList<>(filenames.length);
+        ExecutorService writers = newWriters();
+        try {
+            for (String filename : filenames) {
+                results.add(generate(dir.resolve(filename), size, writers));
+            }
+        } finally {
+            writers.shutdown();
+        }
+        return results;
+    }
+
+    private ExecutorService newWriters() {
+        return ThreadPoolBuilder.builder(parallelism * 4)
+                .corePoolSize(parallelism)
+                .maxPoolSize(parallelism)
+                .threadPoolName("synthetic-file-writer")
+                .build();
+    }
+
+    private Result generate(Path file, long size, ExecutorService writers) throws IOException {
+        if (size < 0) {
+            throw new IllegalArgumentException(String.format("size must not be negative, but was %d", size));
+        }
+        long start = System.nanoTime();
+        ByteBuffer block = fillBlock((int) Math.min(blockSize, Math.max(size, 1L)));
+        int tailSize = (int) (size % block.capacity());
+        ByteBuffer tail = tailSize == 0 ? block : fillBlock(tailSize);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            // 预分配, 同时截断已存在的更大的文件
+            raf.setLength(size);
+            FileChannel channel = raf.getChannel();
+            long blocks = (size + block.capacity() - 1) / block.capacity();
+            int ranges = (int) Math.max(1, Math.min(parallelism, blocks));
+            long blocksPerRange = (blocks + ranges - 1) / ranges;
+            long rangeSize = blocksPerRange * block.capacity();
+            List<Future<?>> futures = new ArrayList<>(ranges);
+            for (long position = 0; position < size; position += rangeSize) {
+                long from = position;
+                long to = Math.min(size, position + rangeSize);
+                futures.add(writers.submit(() -> {
+                    writeRange(channel, block.duplicate(), tail.duplicate(), from, to);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+        Result result = new Result(file, size, System.nanoTime() - start);
+        log.info("生成文件完成, {}", result);
+        return result;
+    }
+
+    /**
+     * 区间按块对齐, 只有文件末尾不足一块的部分写入 {@code tail}
+     */
+    private static void writeRange(FileChannel channel, ByteBuffer block, ByteBuffer tail, long from, long to) throws IOException {
+        long position = from;
+        while (position < to) {
+            ByteBuffer source = to - position < block.capacity() ? tail : block;
+            source.clear();
+            while (source.hasRemaining()) {
+                position += channel.write(source, position);
+            }
+        }
+    }
+
+    /**
+     * 在当前线程调用 {@link Generator} 填满一个块, 生成器不需要线程安全
+     * 遇到第一个放不下的元素(包括分隔符)时停止, 剩余空间用 {@link #padding} 填充;
+     * 第一个元素就放不下(元素比块或者整个文件大)时写入该元素按字符截断的前缀, 不会得到只有填充字节的块
+     */
+    private ByteBuffer fillBlock(int capacity) {
+        ByteBuffer block = ByteBuffer.allocateDirect(capacity);
+        byte[] separatorBytes = separator.getBytes(charset);
+        int empty = 0;
+        while (block.hasRemaining()) {
+            CharSequence element = generator.next();
+            byte[] bytes = element == null ? new byte[0] : element.toString().getBytes(charset);
+            if (bytes.length + separatorBytes.length == 0) {
+                if (++empty >= MAX_EMPTY_ELEMENTS) {
+                    throw new IllegalArgumentException("generator does not produce any content");
+                }
+                continue;
+            }
+            empty = 0;
+            if (bytes.length + separatorBytes.length > block.remaining()) {
+                if (block.position() == 0) {
+                    putPrefix(block, element);
+                }
+                break;
+            }
+            block.put(bytes).put(separatorBytes);
+        }
+        byte padding = padding(separatorBytes);
+        while (block.hasRemaining()) {
+            block.put(padding);
+        }
+        block.flip();
+        return block;
+    }
+
+    /**
+     * 按字符编码元素直到块中放不下下一个完整的字符, 不会拆开多字节字符
+     * (块比一个字符还小时, 如文件末尾只剩 1 个字节, 什么也不写入, 只有填充字节)
+     */
+    private void putPrefix(ByteBuffer block, CharSequence element) {
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        encoder.encode(CharBuffer.wrap(element), block, true);
+    }
+
+    /**
+     * @return 分隔符的最后一个字节是 ASCII 字符时使用该字节(如换行符), 否则使用空格
+     */
+    private static byte padding(byte[] separatorBytes) {
+        if (separatorBytes.length > 0 && separatorBytes[separatorBytes.length - 1] >= 0) {
+            return separatorBytes[separatorBytes.length - 1];
+        }
+        return ' ';
+    }
+
+    public static class Builder {
+        private Generator<? extends CharSequence> generator;
+        private Charset charset = StandardCharsets.UTF_8;
+        private String separator = System.lineSeparator();
+        private int blockSize = DEFAULT_BLOCK_SIZE;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * @param generator 内容生成器, 如 {@link cn.qingweico.supplier.RandomDataGenerator}
+         */
+        public Builder generator(Generator<? extends CharSequence> generator) {
+            this.generator = generator;
+            return this;
+        }
+
+        /**
+         * 以固定文本重复填充
+         */
+        public Builder text(String text) {
+            this.generator = () -> text;
+            return this;
+        }
+
+        public Builder charset(Charset charset) {
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * @param separator 每个元素之后追加的分隔符, 默认换行
+         */
+        public Builder separator(String separator) {
+            this.separator = separator;
+            return this;
+        }
+
+        public Builder blockSize(int blockSize) {
+            if (blockSize <= 0) {
+                throw new IllegalArgumentException("blockSize must be greater than 0");
+            }
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be greater than 0");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public SyntheticFileGenerator build() {
+            return new SyntheticFileGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package cn.qingweico.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 基于字节的词频 / n-gram 统计
+ * 在 {@link MappedFileTokenizer} 的基础上, 每个工作线程持有一张原始类型的开放寻址哈希表,
+ * key 是小写后的 UTF-8 字节片段(存放在连续的字节数组中), value 是 long 计数; 统计过程中不创建 {@link String},
+ * 也没有 {@code HashMap<String, Integer>} 的装箱开销, 最后再把各线程的表合并
+ * n-gram 由同一个块内连续的 n 个单词以空格连接组成, 跨块边界的 n-gram 不会被统计
+ *
+ * @author zqw
+ * @date 2026/10/19
+ * @see FileUtils#readFileToArrayList
+ */
+public final class TokenFrequencyCounter {
+    private final ByteKeyTable table;
+    private final long total;
+
+    private TokenFrequencyCounter(ByteKeyTable table, long total) {
+        this.table = table;
+        this.total = total;
+    }
+
+    /**
+     * 统计文件中每个单词出现的次数
+     *
+     * @param path 文件路径
+     * @return 统计结果
+     */
+    public static TokenFrequencyCounter countWords(Path path) {
+        return count(new MappedFileTokenizer(path), 1);
+    }
+
+    /**
+     * 统计文件中每个 n-gram 出现的次数
+     *
+     * @param path 文件路径
+     * @param n    每个 n-gram 包含的单词数
+     * @return 统计结果
+     */
+    public static TokenFrequencyCounter countNgrams(Path path, int n) {
+        return count(new MappedFileTokenizer(path), n);
+    }
+
+    /**
+     * 使用指定的分词器统计
+     *
+     * @param tokenizer 分词器(决定块大小与并行度)
+     * @param n         每个 n-gram 包含的单词数, 1 即词频
+     * @return 统计结果
+     */
+    public static TokenFrequencyCounter count(MappedFileTokenizer tokenizer, int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException(String.format("n must be greater than 0, but was %d", n));
+        }
+        List<CountingSink> sinks = tokenizer.tokenize(() -> new CountingSink(n));
+        ByteKeyTable merged = sinks.isEmpty() ? new ByteKeyTable() : sinks.get(0).table;
+        long total = 0;
+        for (int i = 0; i < sinks.size(); i++) {
+            CountingSink sink = sinks.get(i);
+            total += sink.total;
+            if (i > 0) {
+                merged.mergeFrom(sink.table);
+            }
+        }
+        return new TokenFrequencyCounter(merged, total);
+    }
+
+    /**
+     * @return 统计到的单词(或 n-gram)总数
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @return 不同单词(或 n-gram)的个数
+     */
+    public int distinct() {
+        return table.size;
+    }
+
+    /**
+     * 查询某个单词(或以空格连接的 n-gram)出现的次数
+     *
+     * @param token 小写的单词
+     * @return 出现次数
+     */
+    public long count(String token) {
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        return table.get(bytes, bytes.length, ByteKeyTable.hash(bytes, bytes.length));
+    }
+
+    /**
+     * 返回出现次数最多的 k 个单词, 按次数降序
+     *
+     * @param k 个数
+     * @return 单词及其出现次数
+     */
+    public List<Map.Entry<String, Long>> topK(int k) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<Integer> byCount = Comparator.comparingLong(slot -> table.counts[slot]);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, byCount);
+        for (int slot = 0; slot < table.hashes.length; slot++) {
+            if (table.hashes[slot] == 0L) {
+                continue;
+            }
+            if (heap.size() < k) {
+                heap.add(slot);
+            } else if (table.counts[slot] > table.counts[heap.peek()]) {
+                heap.poll();
+                heap.add(slot);
+            }
+        }
+        List<Map.Entry<String, Long>> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            int slot = heap.poll();
+            result.add(new AbstractMap.SimpleImmutableEntry<>(table.key(slot), table.counts[slot]));
+        }
+        // 小顶堆依次弹出的是升序
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * 遍历完整的直方图
+     *
+     * @param consumer 单词及其出现次数
+     */
+    public void forEach(ObjLongConsumer<String> consumer) {
+        for (int slot = 0; slot < table.hashes.length; slot++) {
+            if (table.hashes[slot] != 0L) {
+                consumer.accept(table.key(slot), table.counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return 完整的直方图
+     */
+    public Map<String, Long> histogram() {
+        Map<String, Long> histogram = new HashMap<>((int) (table.size / 0.75f) + 1);
+        forEach(histogram::put);
+        return histogram;
+    }
+
+    /**
+     * 每个工作线程一个, 负责小写化、拼接 n-gram 并写入本线程的哈希表
+     */
+    static final class CountingSink implements MappedFileTokenizer.TokenSink {
+        final ByteKeyTable table = new ByteKeyTable();
+        final int n;
+        long total;
+        /*最近的 n 个单词, 环形存放*/
+        final byte[][] window;
+        final int[] windowLength;
+        int head;
+        int filled;
+        ByteBuffer lastBuffer;
+        byte[] gram = new byte[256];
+
+        CountingSink(int n) {
+            this.n = n;
+            this.window = new byte[n][64];
+            this.windowLength = new int[n];
+        }
+
+        @Override
+        public void accept(ByteBuffer buffer, int start, int end) {
+            if (buffer != lastBuffer) {
+                // 新的块, n-gram 不跨块
+                lastBuffer = buffer;
+                filled = 0;
+            }
+            int length = end - start;
+            byte[] slot = window[head];
+            if (slot.length < length) {
+                slot = window[head] = new byte[Math.max(length, slot.length << 1)];
+            }
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(start + i);
+                if (b < 0) {
+                    ascii = false;
+                } else if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                slot[i] = b;
+            }
+            if (!ascii) {
+                // 非 ASCII 字符按 String 的规则小写, 与 FileUtils#readFileToArrayList 保持一致
+                byte[] lower = new String(slot, 0, length, StandardCharsets.UTF_8).toLowerCase().getBytes(StandardCharsets.UTF_8);
+                if (lower.length > slot.length) {
+                    slot = window[head] = lower.clone();
+                } else {
+                    System.arraycopy(lower, 0, slot, 0, lower.length);
+                }
+                length = lower.length;
+            }
+            windowLength[head] = length;
+            head = (head + 1) % n;
+            if (filled < n) {
+                filled++;
+            }
+            if (filled < n) {
+                return;
+            }
+            total++;
+            if (n == 1) {
+                table.increment(slot, length, ByteKeyTable.hash(slot, length));
+                return;
+            }
+            int gramLength = 0;
+            for (int k = 0; k < n; k++) {
+                int index = (head + k) % n;
+                int required = gramLength + windowLength[index] + 1;
+                if (gram.length < required) {
+                    byte[] expanded = new byte[Math.max(required, gram.length << 1)];
+                    System.arraycopy(gram, 0, expanded, 0, gramLength);
+                    gram = expanded;
+                }
+                if (k > 0) {
+                    gram[gramLength++] = ' ';
+                }
+                System.arraycopy(window[index], 0, gram, gramLength, windowLength[index]);
+                gramLength += windowLength[index];
+            }
+            table.increment(gram, gramLength, ByteKeyTable.hash(gram, gramLength));
+        }
+    }
+
+    /**
+     * key 为字节片段的开放寻址哈希表(线性探测)
+     * hash 为 0 表示空槽, 所有 key 的字节连续存放在 {@link #arena} 中
+     */
+    static final class ByteKeyTable {
+        private static final int INITIAL_CAPACITY = 1 << 12;
+        private static final float LOAD_FACTOR = 0.6f;
+
+        long[] hashes = new long[INITIAL_CAPACITY];
+        long[] counts = new long[INITIAL_CAPACITY];
+        int[] offsets = new int[INITIAL_CAPACITY];
+        int[] lengths = new int[INITIAL_CAPACITY];
+        byte[] arena = new byte[INITIAL_CAPACITY * 8];
+        int arenaSize;
+        int size;
+
+        static long hash(byte[] bytes, int length) {
+            // FNV-1a + murmur3 fmix64
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < length; i++) {
+                h ^= bytes[i];
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h == 0L ? 1L : h;
+        }
+
+        void increment(byte[] key, int length, long hash) {
+            add(key, 0, length, hash, 1L);
+        }
+
+        long get(byte[] key, int length, long hash) {
+            int mask = hashes.length - 1;
+            for (int slot = (int) hash & mask; hashes[slot] != 0L; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && equalsKey(slot, key, 0, length)) {
+                    return counts[slot];
+                }
+            }
+            return 0L;
+        }
+
+        void mergeFrom(ByteKeyTable other) {
+            for (int slot = 0; slot < other.hashes.length; slot++) {
+                if (other.hashes[slot] != 0L) {
+                    add(other.arena, other.offsets[slot], other.lengths[slot], other.hashes[slot], other.counts[slot]);
+                }
+            }
+        }
+
+        String key(int slot) {
+            return new String(arena, offsets[slot], lengths[slot], StandardCharsets.UTF_8);
+        }
+
+        private void add(byte[] key, int offset, int length, long hash, long delta) {
+            int mask = hashes.length - 1;
+            int slot = (int) hash & mask;
+            while (hashes[slot] != 0L) {
+                if (hashes[slot] == hash && equalsKey(slot, key, offset, length)) {
+                    counts[slot] += delta;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (arenaSize + length > arena.length) {
+                byte[] expanded = new byte[Math.max(arenaSize + length, arena.length << 1)];
+                System.arraycopy(arena, 0, expanded, 0, arenaSize);
+                arena = expanded;
+            }
+            System.arraycopy(key, offset, arena, arenaSize, length);
+            hashes[slot] = hash;
+            counts[slot] = delta;
+            offsets[slot] = arenaSize;
+            lengths[slot] = length;
+            arenaSize += length;
+            if (++size > hashes.length * LOAD_FACTOR) {
+                rehash();
+            }
+        }
+
+        private boolean equalsKey(int slot, byte[] key, int offset, int length) {
+            if (lengths[slot] != length) {
+                return false;
+            }
+            int base = offsets[slot];
+            for (int i = 0; i < length; i++) {
+                if (arena[base + i] != key[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            long[] oldHashes = hashes;
+            long[] oldCounts = counts;
+            int[] oldOffsets = offsets;
+            int[] oldLengths = lengths;
+            int capacity = oldHashes.length << 1;
+            hashes = new long[capacity];
+            counts = new long[capacity];
+            offsets = new int[capacity];
+            lengths = new int[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldHashes.length; i++) {
+                long hash = oldHashes[i];
+                if (hash == 0L) {
+                    continue;
+                }
+                int slot = (int) hash & mask;
+                while (hashes[slot] != 0L) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = hash;
+                counts[slot] = oldCounts[i];
+                offsets[slot] = oldOffsets[i];
+                lengths[slot] = oldLengths[i];
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package cn.qingweico.model;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * @author zqw
@@ -11,5 +12,13 @@ public interface ArchiveReader extends Closeable {
 
     ArchiveEntryWrapper getNextEntry() throws IOException;
     byte[] readEntry() throws IOException;
+
+    /**
+     * 当前 entry 的内容, 按流读取, 不会一次性加载到内存中
+     * 关闭返回的流不会关闭底层的归档流
+     *
+     * @return 当前 entry 的输入流, 读到 entry 末尾时返回 -1
+     */
+    InputStream entryStream();
     String name();
 }
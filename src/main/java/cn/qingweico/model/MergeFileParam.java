@@ -4,6 +4,7 @@ import lombok.Getter;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 /**
  * @author zqw
@@ -14,11 +15,56 @@ public class MergeFileParam {
     private final List<String> ignoredFileSuffixes;
     private final List<String> ignoredDirs;
     private final List<String> ignoredFiles;
+    /**
+     * 并行读取文件的线程数, 1 表示单线程顺序合并
+     */
+    private final int parallelism;
+    /**
+     * 并行合并时内存中暂存的已读取但未写出数据的上限(字节)
+     */
+    private final long maxBufferedBytes;
+    /**
+     * 并行解压单个 zip 文件中 entry 的线程数, 1 表示顺序读取
+     */
+    private final int archiveParallelism;
+    /**
+     * 普通文件是否按字节原样拷贝(由内核完成, 不解码), 未设置 {@link #lineTransformer} 时生效
+     */
+    private final boolean byteTransfer;
+    /**
+     * 普通文件的逐行转换, 设置后文件内容按 UTF-8 解码后逐行处理
+     */
+    private final UnaryOperator<String> lineTransformer;
+    /**
+     * 是否增量合并: 在输出文件旁维护清单({@code <out>.manifest}), 未变化的文件直接复用上一次合并结果中的片段
+     */
+    private final boolean incremental;
+    /**
+     * 是否按内容去重: 内容相同的文件(以及同一个归档中内容相同的 entry)只写入第一次出现的内容, 之后只写入一行引用
+     */
+    private final boolean deduplicate;
+    /**
+     * 是否以 gzip 格式写出合并结果(多线程分块压缩), 不能与 {@link #incremental} 同时使用
+     */
+    private final boolean gzip;
+    /**
+     * gzip 压缩的线程数
+     */
+    private final int gzipParallelism;
 
     private MergeFileParam(Builder builder) {
         this.ignoredFileSuffixes = builder.ignoredFileSuffixes;
         this.ignoredDirs = builder.ignoredDirs;
         this.ignoredFiles = builder.ignoredFiles;
+        this.parallelism = builder.parallelism;
+        this.maxBufferedBytes = builder.maxBufferedBytes;
+        this.archiveParallelism = builder.archiveParallelism;
+        this.byteTransfer = builder.byteTransfer;
+        this.lineTransformer = builder.lineTransformer;
+        this.incremental = builder.incremental;
+        this.deduplicate = builder.deduplicate;
+        this.gzip = builder.gzip;
+        this.gzipParallelism = builder.gzipParallelism;
     }
 
     public static Builder builder() {
@@ -33,6 +79,15 @@ public class MergeFileParam {
         private List<String> ignoredFileSuffixes;
         private List<String> ignoredDirs;
         private List<String> ignoredFiles;
+        private int parallelism = 1;
+        private long maxBufferedBytes = 256L * 1024 * 1024;
+        private int archiveParallelism = 1;
+        private boolean byteTransfer = false;
+        private UnaryOperator<String> lineTransformer;
+        private boolean incremental = false;
+        private boolean deduplicate = false;
+        private boolean gzip = false;
+        private int gzipParallelism = Runtime.getRuntime().availableProcessors();
 
         public Builder ignoredFileSuffixes(String... ignoredFileSuffixes) {
             this.ignoredFileSuffixes = Arrays.asList(ignoredFileSuffixes);
@@ -49,7 +104,68 @@ public class MergeFileParam {
             return this;
         }
 
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be greater than 0");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder maxBufferedBytes(long maxBufferedBytes) {
+            if (maxBufferedBytes <= 0) {
+                throw new IllegalArgumentException("maxBufferedBytes must be greater than 0");
+            }
+            this.maxBufferedBytes = maxBufferedBytes;
+            return this;
+        }
+
+        public Builder archiveParallelism(int archiveParallelism) {
+            if (archiveParallelism <= 0) {
+                throw new IllegalArgumentException("archiveParallelism must be greater than 0");
+            }
+            this.archiveParallelism = archiveParallelism;
+            return this;
+        }
+
+        public Builder byteTransfer(boolean byteTransfer) {
+            this.byteTransfer = byteTransfer;
+            return this;
+        }
+
+        public Builder lineTransformer(UnaryOperator<String> lineTransformer) {
+            this.lineTransformer = lineTransformer;
+            return this;
+        }
+
+        public Builder incremental(boolean incremental) {
+            this.incremental = incremental;
+            return this;
+        }
+
+        public Builder deduplicate(boolean deduplicate) {
+            this.deduplicate = deduplicate;
+            return this;
+        }
+
+        public Builder gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        public Builder gzipParallelism(int gzipParallelism) {
+            if (gzipParallelism <= 0) {
+                throw new IllegalArgumentException("gzipParallelism must be greater than 0");
+            }
+            this.gzipParallelism = gzipParallelism;
+            return this;
+        }
+
         public MergeFileParam build() {
+            if (incremental && gzip) {
+                // 增量合并需要按偏移复用上一次的合并结果, 压缩后的输出无法按偏移访问
+                throw new IllegalArgumentException("incremental merge cannot be combined with gzip output");
+            }
             return new MergeFileParam(this);
         }
     }
@@ -1,10 +1,12 @@
 package cn.qingweico.model;
 
+import cn.qingweico.io.PooledByteArrayOutputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * @author zqw
@@ -32,7 +34,15 @@ public class TarArchiveReader implements ArchiveReader {
 
     @Override
     public byte[] readEntry() throws IOException {
-        return IOUtils.toByteArray(tis);
+        try (PooledByteArrayOutputStream out = new PooledByteArrayOutputStream()) {
+            out.readFrom(tis);
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    public InputStream entryStream() {
+        return CloseShieldInputStream.wrap(tis);
     }
 
     @Override
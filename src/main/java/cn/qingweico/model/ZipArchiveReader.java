@@ -1,8 +1,10 @@
 package cn.qingweico.model;
 
-import org.apache.commons.io.IOUtils;
+import cn.qingweico.io.PooledByteArrayOutputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -32,7 +34,15 @@ public class ZipArchiveReader implements ArchiveReader {
 
     @Override
     public byte[] readEntry() throws IOException {
-        return IOUtils.toByteArray(zis);
+        try (PooledByteArrayOutputStream out = new PooledByteArrayOutputStream()) {
+            out.readFrom(zis);
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    public InputStream entryStream() {
+        return CloseShieldInputStream.wrap(zis);
     }
 
     @Override
@@ -0,0 +1,98 @@
+package cn.qingweico.model;
+
+import cn.qingweico.io.PooledByteArrayOutputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 基于中央目录({@link ZipFile})的 zip 读取
+ * 与 {@link ZipArchiveReader} 顺序读取本地文件头不同, 可以通过 {@link #openEntry(int)} 随机访问任意 entry,
+ * 多个线程可以同时打开并解压不同的 entry
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+public class ZipFileArchiveReader implements ArchiveReader {
+    private final ZipFile zipFile;
+    private final List<ZipEntry> entries;
+    private int next;
+    private InputStream current;
+
+    public ZipFileArchiveReader(File file) throws IOException {
+        this.zipFile = new ZipFile(file);
+        this.entries = zipFile.stream().collect(Collectors.toList());
+    }
+
+    /**
+     * @return 中央目录中的所有 entry, 下标与 {@link #openEntry(int)} 对应
+     */
+    public List<ArchiveEntryWrapper> entries() {
+        List<ArchiveEntryWrapper> wrappers = new ArrayList<>(entries.size());
+        for (ZipEntry entry : entries) {
+            wrappers.add(wrap(entry));
+        }
+        return wrappers;
+    }
+
+    /**
+     * 打开指定的 entry, 线程安全
+     *
+     * @param index {@link #entries()} 中的下标
+     * @return 解压后的内容, 使用完毕后需要关闭
+     */
+    public InputStream openEntry(int index) throws IOException {
+        return zipFile.getInputStream(entries.get(index));
+    }
+
+    @Override
+    public ArchiveEntryWrapper getNextEntry() throws IOException {
+        IOUtils.close(current);
+        current = null;
+        if (next >= entries.size()) {
+            return null;
+        }
+        ZipEntry entry = entries.get(next);
+        current = openEntry(next++);
+        return wrap(entry);
+    }
+
+    @Override
+    public byte[] readEntry() throws IOException {
+        try (PooledByteArrayOutputStream out = new PooledByteArrayOutputStream()) {
+            out.readFrom(current);
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    public InputStream entryStream() {
+        return current;
+    }
+
+    @Override
+    public String name() {
+        return "ZipFileArchive";
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(current);
+        zipFile.close();
+    }
+
+    private static ArchiveEntryWrapper wrap(ZipEntry entry) {
+        return new ArchiveEntryWrapper(
+                entry.getName(),
+                entry.isDirectory(),
+                entry.getSize()
+        );
+    }
+}
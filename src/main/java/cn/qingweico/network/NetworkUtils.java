@@ -9,6 +9,7 @@ import cn.hutool.json.JSONUtil;
 import cn.qingweico.concurrent.pool.ThreadPoolBuilder;
 import cn.qingweico.constants.Symbol;
 import cn.qingweico.convert.StringConvert;
+import cn.qingweico.io.PooledByteArrayOutputStream;
 import cn.qingweico.model.HttpRequestEntity;
 import cn.qingweico.model.Poem;
 import cn.qingweico.model.TimeoutDefaults;
@@ -733,12 +734,8 @@ public class NetworkUtils {
             headerFields.forEach((key, value) -> responseHeaders.put(Objects.requireNonNullElse(key, "Status"), value));
             infoResponseHeaderLog(responseHeaders.toString(4));
             try (InputStream inputStream = connection.getInputStream();
-                 FastByteArrayOutputStream outputStream = new FastByteArrayOutputStream()) {
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                }
+                 PooledByteArrayOutputStream outputStream = new PooledByteArrayOutputStream()) {
+                outputStream.readFrom(inputStream);
                 String response = outputStream.toString();
                 log.info("请求成功, 返回的响应信息为 ===> {}", StringConvert.prettyJson(response));
                 return response;
@@ -1072,8 +1069,7 @@ public class NetworkUtils {
 
 
     private static String formEntityToString(HttpEntity entity) {
-        try {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PooledByteArrayOutputStream out = new PooledByteArrayOutputStream()) {
             entity.writeTo(out);
             String content = out.toString();
             return StringConvert.prettyJson(content);
@@ -1,6 +1,7 @@
 package cn.qingweico.serialize;
 
 import cn.qingweico.constants.Constants;
+import cn.qingweico.io.PooledByteArrayOutputStream;
 import cn.qingweico.io.Print;
 
 
@@ -29,10 +30,10 @@ public class SerializeUtil {
             return null;
         }
         ObjectOutputStream oos = null;
-        ByteArrayOutputStream byteArrayOutput = null;
+        PooledByteArrayOutputStream byteArrayOutput = null;
         byte[] bytes = null;
         try {
-            byteArrayOutput = new ByteArrayOutputStream();
+            byteArrayOutput = new PooledByteArrayOutputStream();
             oos = new ObjectOutputStream(byteArrayOutput);
             oos.writeObject(object);
             bytes = byteArrayOutput.toByteArray();
@@ -130,10 +131,10 @@ public class SerializeUtil {
             return null;
         }
         ObjectOutputStream oos = null;
-        ByteArrayOutputStream byteArrayOutput = null;
+        PooledByteArrayOutputStream byteArrayOutput = null;
         byte[] bytes = null;
         try {
-            byteArrayOutput = new ByteArrayOutputStream();
+            byteArrayOutput = new PooledByteArrayOutputStream();
             oos = new ObjectOutputStream(byteArrayOutput);
             for (Object obj : list) {
                 oos.writeObject(obj);
@@ -0,0 +1,88 @@
+package cn.qingweico.supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于本地文件的号段存储
+ * 每个业务标识对应目录下的一个 {@code <bizTag>.segment} 文件, 文件中只保存已经发放出去的最大值;
+ * 租借号段时先持有同一个文件在 JVM 内共享的监视器锁(多个实例使用同一个目录时也互斥, 文件锁在同一个 JVM 内不能重复获取),
+ * 再持有文件锁(跨进程互斥), 先在文件开头覆盖写入定长的新最大值并 {@link FileChannel#force(boolean)} 落盘, 再返回号段
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@Slf4j
+public class FileSegmentStore implements SegmentStore {
+    private static final String SEGMENT_FILE_SUFFIX = ".segment";
+    /**
+     * 最大值补零到 20 位(不少于 long 的最大位数), 覆盖写时总能完整覆盖原来的内容
+     */
+    private static final String VALUE_FORMAT = "%020d";
+    /**
+     * 文件的真实路径 -> JVM 内的锁, 同一个文件的多个实例共享
+     */
+    private static final Map<Path, Object> LOCKS = new ConcurrentHashMap<>();
+    private final Path directory;
+
+    public FileSegmentStore(String directory) {
+        this(Paths.get(directory));
+    }
+
+    public FileSegmentStore(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            // 符号链接、相对路径指向同一个目录时使用同一把锁
+            this.directory = directory.toRealPath();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public SegmentRange lease(String bizTag, int step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException(String.format("step must be greater than 0, but was %d", step));
+        }
+        Path file = directory.resolve(bizTag + SEGMENT_FILE_SUFFIX);
+        synchronized (LOCKS.computeIfAbsent(file, k -> new Object())) {
+            return lease(file, bizTag, step);
+        }
+    }
+
+    private SegmentRange lease(Path file, String bizTag, int step) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 关闭通道时释放锁
+            channel.lock();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // read fully
+            }
+            String content = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim();
+            long max = content.isEmpty() ? 0L : Long.parseLong(content);
+            long newMax = Math.addExact(max, step);
+            // 定长覆盖写, 不截断文件: 写入前崩溃时保留原来的值, 不会留下空文件而重复发放号段
+            ByteBuffer value = ByteBuffer.wrap(String.format(VALUE_FORMAT, newMax).getBytes(StandardCharsets.UTF_8));
+            while (value.hasRemaining()) {
+                channel.write(value, value.position());
+            }
+            channel.force(true);
+            log.debug("业务 {} 租借号段 [{}, {}]", bizTag, max + 1, newMax);
+            return new SegmentRange(max + 1, newMax + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package cn.qingweico.supplier;
+
+import cn.qingweico.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * ID 生成器在多线程竞争下的 JMH 基准测试
+ * - 吞吐量: ops/s
+ * - 分配速率: {@link GCProfiler} 输出的 gc.alloc.rate / gc.alloc.rate.norm
+ * - 有序性: 每个线程检查自己拿到的ID是否严格递增, 出现逆序时当前迭代直接失败
+ * - 重复性: 正式测量前先并发生成一批ID(包括批量生成的接口和 ULID), 排序后检查相邻元素, 代替 {@link SnowflakeIdWorker#main} 中的 ConcurrentHashMap
+ * 线程数从 1 开始每次翻倍, 直到 {@link Runtime#availableProcessors()}
+ *
+ * @author zqw
+ * @date 2026/10/19
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+    private static final int BATCH_SIZE = 1000;
+    private static final int VERIFY_IDS_PER_THREAD = 200_000;
+    private static final String BIZ_TAG = "benchmark";
+
+    @State(Scope.Benchmark)
+    public static class Generators {
+        SnowflakeIdGenerator snowflake;
+        SnowflakeIdGenerator cachedClockSnowflake;
+        SegmentIdAllocator segment;
+        UlidGenerator ulid;
+        Path segmentDir;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            snowflake = new SnowflakeIdGenerator(1, 1);
+            cachedClockSnowflake = new SnowflakeIdGenerator(1, 1, true);
+            segmentDir = Files.createTempDirectory("segment-benchmark");
+            segment = new SegmentIdAllocator(new FileSegmentStore(segmentDir), 100_000, 0.1);
+            ulid = new UlidGenerator();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            segment.close();
+            FileUtils.delete(segmentDir.toFile());
+        }
+    }
+
+    /**
+     * 每个线程独立记录上一个ID, 检查是否严格递增
+     */
+    @State(Scope.Thread)
+    public static class OrderChecker {
+        long last = Long.MIN_VALUE;
+        long violations;
+        final char[] chars = new char[UlidGenerator.LENGTH];
+        final char[] lastChars = new char[UlidGenerator.LENGTH];
+
+        long check(long id) {
+            if (id <= last) {
+                violations++;
+            }
+            last = id;
+            return id;
+        }
+
+        long check(long[] ids) {
+            for (long id : ids) {
+                check(id);
+            }
+            return last;
+        }
+
+        char[] checkChars() {
+            if (Arrays.compare(chars, lastChars) <= 0) {
+                violations++;
+            }
+            System.arraycopy(chars, 0, lastChars, 0, chars.length);
+            return chars;
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            last = Long.MIN_VALUE;
+            violations = 0;
+            Arrays.fill(lastChars, (char) 0);
+        }
+
+        @TearDown(Level.Iteration)
+        public void verify() {
+            if (violations > 0) {
+                throw new IllegalStateException(violations + " ids were not strictly increasing");
+            }
+        }
+    }
+
+    @Benchmark
+    public long snowflakeIdWorker(OrderChecker checker) {
+        return checker.check(SnowflakeIdWorker.nextId());
+    }
+
+    @Benchmark
+    public long snowflakeIdGenerator(Generators generators, OrderChecker checker) {
+        return checker.check(generators.snowflake.nextId());
+    }
+
+    @Benchmark
+    public long snowflakeIdGeneratorCachedClock(Generators generators, OrderChecker checker) {
+        return checker.check(generators.cachedClockSnowflake.nextId());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long snowflakeIdGeneratorBatch(Generators generators, OrderChecker checker) {
+        return checker.check(generators.snowflake.nextIds(BATCH_SIZE));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long snowflakeIdWorkerBatch(OrderChecker checker) {
+        return checker.check(SnowflakeIdWorker.nextIds(BATCH_SIZE));
+    }
+
+    @Benchmark
+    public long segmentIdAllocator(Generators generators, OrderChecker checker) {
+        return checker.check(generators.segment.nextId(BIZ_TAG));
+    }
+
+    @Benchmark
+    public char[] ulid(Generators generators, OrderChecker checker) {
+        generators.ulid.next(checker.chars, 0);
+        return checker.checkChars();
+    }
+
+    @Benchmark
+    public String ulidString(Generators generators) {
+        return generators.ulid.next();
+    }
+
+    /**
+     * 并发生成ID后排序, 检查是否存在重复
+     *
+     * @param name      生成器名称
+     * @param threads   并发线程数
+     * @param generator ID 生成器
+     */
+    static void verifyUnique(String name, int threads, LongSupplier generator) {
+        verifyUniqueBatches(name, threads, count -> {
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = generator.getAsLong();
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * 并发批量生成ID, 展开后排序, 检查是否存在重复
+     *
+     * @param name    生成器名称
+     * @param threads 并发线程数
+     * @param batch   按指定的个数(不超过 {@link #BATCH_SIZE})生成一批ID
+     */
+    static void verifyUniqueBatches(String name, int threads, IntFunction<long[]> batch) {
+        try {
+            List<long[]> results = runConcurrently(threads, () -> {
+                long[] ids = new long[VERIFY_IDS_PER_THREAD];
+                for (int n = 0; n < ids.length; ) {
+                    long[] next = batch.apply(Math.min(BATCH_SIZE, ids.length - n));
+                    System.arraycopy(next, 0, ids, n, next.length);
+                    n += next.length;
+                }
+                return ids;
+            });
+            long[] all = new long[threads * VERIFY_IDS_PER_THREAD];
+            for (int t = 0; t < threads; t++) {
+                System.arraycopy(results.get(t), 0, all, t * VERIFY_IDS_PER_THREAD, VERIFY_IDS_PER_THREAD);
+            }
+            Arrays.parallelSort(all);
+            for (int i = 1; i < all.length; i++) {
+                if (all[i] == all[i - 1]) {
+                    throw new IllegalStateException(name + " generated duplicate id " + all[i] + " with " + threads + " threads");
+                }
+            }
+            System.out.printf("%s: %d ids from %d threads are unique%n", name, all.length, threads);
+        } catch (Exception e) {
+            throw new IllegalStateException(name + " uniqueness check failed", e);
+        }
+    }
+
+    /**
+     * 并发生成 ULID 后排序, 检查是否存在重复
+     *
+     * @param name      生成器名称
+     * @param threads   并发线程数
+     * @param generator ULID 生成器
+     */
+    static void verifyUniqueUlid(String name, int threads, UlidGenerator generator) {
+        try {
+            List<String[]> results = runConcurrently(threads, () -> {
+                String[] ids = new String[VERIFY_IDS_PER_THREAD];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = generator.next();
+                }
+                return ids;
+            });
+            String[] all = results.stream().flatMap(Arrays::stream).toArray(String[]::new);
+            Arrays.parallelSort(all);
+            for (int i = 1; i < all.length; i++) {
+                if (all[i].equals(all[i - 1])) {
+                    throw new IllegalStateException(name + " generated duplicate id " + all[i] + " with " + threads + " threads");
+                }
+            }
+            System.out.printf("%s: %d ids from %d threads are unique%n", name, all.length, threads);
+        } catch (Exception e) {
+            throw new IllegalStateException(name + " uniqueness check failed", e);
+        }
+    }
+
+    /**
+     * 在 {@code threads} 个线程中同时执行 {@code task}
+     *
+     * @return 每个线程的结果
+     */
+    private static <T> List<T> runConcurrently(int threads, Callable<T> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<T>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(task));
+            }
+            List<T> results = new ArrayList<>(threads);
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        Path segmentDir;
+        try {
+            segmentDir = Files.createTempDirectory("segment-verify");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        SnowflakeIdGenerator snowflake = new SnowflakeIdGenerator(1, 1);
+        try (SegmentIdAllocator segment = new SegmentIdAllocator(new FileSegmentStore(segmentDir), 100_000, 0.1)) {
+            verifyUnique("SnowflakeIdWorker", maxThreads, SnowflakeIdWorker::nextId);
+            verifyUnique("SnowflakeIdGenerator", maxThreads, snowflake::nextId);
+            verifyUnique("SegmentIdAllocator", maxThreads, () -> segment.nextId(BIZ_TAG));
+            verifyUniqueBatches("SnowflakeIdWorker.nextIds", maxThreads, SnowflakeIdWorker::nextIds);
+            verifyUniqueBatches("SnowflakeIdGenerator.nextIds", maxThreads, snowflake::nextIds);
+            verifyUniqueUlid("UlidGenerator", maxThreads, new UlidGenerator());
+        } finally {
+            FileUtils.delete(segmentDir.toFile());
+        }
+
+        for (int threads = 1; ; threads = Math.min(threads << 1, maxThreads)) {
+            Options options = new OptionsBuilder()
+                    .include(IdGeneratorBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+            if (threads == maxThreads) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package cn.qingweico.supplier;
+
+import cn.qingweico.concurrent.pool.ThreadPoolBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段模式(双缓冲)的ID分配器
+ * 每个业务标识持有两个号段: 当前号段和预加载的下一个号段
+ * - 当前号段内的分配只有一次 {@link AtomicLong#getAndIncrement()}, 不加锁, 不访问存储
+ * - 当前号段消耗超过 {@link #loadFactor} 后, 在后台线程中向 {@link SegmentStore} 租借下一个号段
+ * - 当前号段耗尽时切换到下一个号段, 只有切换的瞬间需要加锁
+ * 同一业务标识下的ID是单调递增的, 进程重启后从存储中租借新号段, 不会重复发放
+ *
+ * @author zqw
+ * @date 2026/10/19
+ * @see SnowflakeIdGenerator
+ */
+@Slf4j
+public class SegmentIdAllocator implements Closeable {
+    private static final int DEFAULT_STEP = 1000;
+    private static final double DEFAULT_LOAD_FACTOR = 0.1;
+
+    private final SegmentStore store;
+    private final int step;
+    private final double loadFactor;
+    private final ExecutorService loader;
+    private final Map<String, SegmentBuffer> buffers = new ConcurrentHashMap<>();
+
+    public SegmentIdAllocator(SegmentStore store) {
+        this(store, DEFAULT_STEP, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param store      号段存储
+     * @param step       每次租借的号段长度
+     * @param loadFactor 当前号段消耗到该比例时开始预加载下一个号段, (0, 1]
+     */
+    public SegmentIdAllocator(SegmentStore store, int step, double loadFactor) {
+        if (step <= 0) {
+            throw new IllegalArgumentException(String.format("step must be greater than 0, but was %d", step));
+        }
+        if (loadFactor <= 0 || loadFactor > 1) {
+            throw new IllegalArgumentException(String.format("load factor must be in (0, 1], but was %s", loadFactor));
+        }
+        this.store = store;
+        this.step = step;
+        this.loadFactor = loadFactor;
+        this.loader = ThreadPoolBuilder.single(true);
+    }
+
+    /**
+     * 获取业务标识下的下一个ID(该方法是线程安全的)
+     *
+     * @param bizTag 业务标识
+     * @return 单调递增的ID
+     */
+    public long nextId(String bizTag) {
+        SegmentBuffer buffer = buffers.computeIfAbsent(bizTag, tag -> new SegmentBuffer(tag, lease(tag)));
+        for (; ; ) {
+            Segment current = buffer.current;
+            long id = current.cursor.getAndIncrement();
+            if (id < current.end) {
+                if (id >= current.threshold && buffer.next == null) {
+                    buffer.loadNextAsync(current);
+                }
+                return id;
+            }
+            buffer.switchToNext(current);
+        }
+    }
+
+    private Segment lease(String bizTag) {
+        SegmentStore.SegmentRange range = store.lease(bizTag, step);
+        return new Segment(range.start(), range.end(), loadFactor);
+    }
+
+    @Override
+    public void close() {
+        loader.shutdown();
+    }
+
+    /**
+     * 已租借的号段, {@code cursor} 可能越过 {@code end}, 越过后即视为耗尽
+     */
+    private static final class Segment {
+        final AtomicLong cursor;
+        final long end;
+        final long threshold;
+
+        Segment(long start, long end, double loadFactor) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+            this.threshold = start + (long) ((end - start) * loadFactor);
+        }
+    }
+
+    private final class SegmentBuffer {
+        final String bizTag;
+        volatile Segment current;
+        volatile CompletableFuture<Segment> next;
+
+        SegmentBuffer(String bizTag, Segment current) {
+            this.bizTag = bizTag;
+            this.current = current;
+        }
+
+        synchronized void loadNextAsync(Segment observed) {
+            if (current != observed || next != null) {
+                return;
+            }
+            next = CompletableFuture.supplyAsync(() -> lease(bizTag), loader);
+        }
+
+        synchronized void switchToNext(Segment exhausted) {
+            if (current != exhausted) {
+                // 其他线程已经完成切换
+                return;
+            }
+            CompletableFuture<Segment> pending = next;
+            next = null;
+            if (pending == null) {
+                log.warn("业务 {} 的号段已耗尽但下一个号段尚未预加载, 同步租借", bizTag);
+                current = lease(bizTag);
+                return;
+            }
+            try {
+                current = pending.join();
+            } catch (CompletionException e) {
+                log.error("业务 {} 预加载号段失败, 同步重试, {}", bizTag, e.getMessage());
+                current = lease(bizTag);
+            }
+        }
+    }
+}
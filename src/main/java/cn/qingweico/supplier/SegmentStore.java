@@ -0,0 +1,38 @@
+package cn.qingweico.supplier;
+
+/**
+ * 号段的持久化存储
+ * 每次租借号段时都需要先把新的最大值持久化, 然后才能把号段交给调用方使用,
+ * 这样即使进程重启, 已经发放过的号段也不会被再次分配(未用完的号段会被跳过, 产生空洞)
+ *
+ * @author zqw
+ * @date 2026/10/19
+ * @see SegmentIdAllocator
+ * @see FileSegmentStore
+ * @see cn.qingweico.database.JdbcSegmentStore
+ */
+public interface SegmentStore {
+
+    /**
+     * 为业务标识租借一个新的号段
+     *
+     * @param bizTag 业务标识
+     * @param step   号段长度
+     * @return 号段 [start, end)
+     */
+    SegmentRange lease(String bizTag, int step);
+
+    /**
+     * 号段区间 [start, end)
+     *
+     * @param start 号段起始值(包含)
+     * @param end   号段结束值(不包含)
+     */
+    record SegmentRange(long start, long end) {
+        public SegmentRange {
+            if (end <= start) {
+                throw new IllegalArgumentException(String.format("illegal segment range [%d, %d)", start, end));
+            }
+        }
+    }
+}
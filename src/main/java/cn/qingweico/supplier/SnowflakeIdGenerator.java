@@ -1,5 +1,9 @@
 package cn.qingweico.supplier;
 
+import cn.qingweico.concurrent.CachedClock;
+
+import java.util.stream.LongStream;
+
 /**
  * Twitter_Snowflake<br>
  * SnowFlake的结构如下(每部分用-分开):<br>
@@ -93,6 +97,11 @@ public class SnowflakeIdGenerator {
      */
     private long lastTimestamp = -1L;
 
+    /**
+     * 是否使用 {@link CachedClock} 作为时钟来源
+     */
+    private final boolean cachedClock;
+
     //==============================Constructors=====================================
 
     /**
@@ -102,6 +111,17 @@ public class SnowflakeIdGenerator {
      * @param datacenterId 数据中心ID (0~31)
      */
     public SnowflakeIdGenerator(long workerId, long datacenterId) {
+        this(workerId, datacenterId, false);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param workerId     工作ID (0~31)
+     * @param datacenterId 数据中心ID (0~31)
+     * @param cachedClock  是否使用 {@link CachedClock} 代替 {@link System#currentTimeMillis()}
+     */
+    public SnowflakeIdGenerator(long workerId, long datacenterId, boolean cachedClock) {
         if (workerId > maxWorkerId || workerId < 0) {
             throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
         }
@@ -110,6 +130,7 @@ public class SnowflakeIdGenerator {
         }
         this.workerId = workerId;
         this.datacenterId = datacenterId;
+        this.cachedClock = cachedClock;
     }
 
     // ==============================Methods==========================================
@@ -152,6 +173,59 @@ public class SnowflakeIdGenerator {
                 | sequence;
     }
 
+    /**
+     * 批量获取ID(该方法是线程安全的)
+     * 一次加锁内按毫秒整段预留序列号, 当前毫秒剩余的序列号不足时才推进到下一个毫秒,
+     * 避免循环调用 {@link #nextId()} 时每个ID都要竞争一次锁并读取一次时钟
+     *
+     * @param n 需要的ID个数
+     * @return 严格递增的ID数组
+     */
+    public synchronized long[] nextIds(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException(String.format("id count must be greater than 0, but was %d", n));
+        }
+        long[] ids = new long[n];
+        int filled = 0;
+        while (filled < n) {
+            long timestamp = timeGen();
+            if (timestamp < lastTimestamp) {
+                throw new RuntimeException(
+                        String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
+            }
+            // 本毫秒内可预留的第一个序列号
+            long first = 0L;
+            if (lastTimestamp == timestamp) {
+                first = sequence + 1;
+                if (first > sequenceMask) {
+                    timestamp = tilNextMillis(lastTimestamp);
+                    first = 0L;
+                }
+            }
+            int count = (int) Math.min(n - filled, sequenceMask - first + 1);
+            long prefix = ((timestamp - startTimeMillis) << timestampLeftShift)
+                    | (datacenterId << datacenterIdShift)
+                    | (workerId << workerIdShift);
+            for (int i = 0; i < count; i++) {
+                ids[filled++] = prefix | (first + i);
+            }
+            sequence = first + count - 1;
+            lastTimestamp = timestamp;
+        }
+        return ids;
+    }
+
+    /**
+     * 批量获取ID并以基本类型流的形式返回
+     *
+     * @param n 需要的ID个数
+     * @return {@link LongStream}
+     * @see #nextIds(int)
+     */
+    public LongStream nextIdStream(int n) {
+        return LongStream.of(nextIds(n));
+    }
+
     /**
      * 阻塞到下一个毫秒,直到获得新的时间戳
      *
@@ -172,6 +246,6 @@ public class SnowflakeIdGenerator {
      * @return 当前时间(毫秒)
      */
     protected long timeGen() {
-        return System.currentTimeMillis();
+        return CachedClock.currentTimeMillis(cachedClock);
     }
 }
@@ -1,6 +1,7 @@
 package cn.qingweico.supplier;
 
 
+import cn.qingweico.concurrent.CachedClock;
 import cn.qingweico.concurrent.pool.ThreadObjectPool;
 import cn.qingweico.constants.Constants;
 
@@ -27,6 +28,7 @@ public class SnowflakeIdWorker {
     private static long lastTime = System.currentTimeMillis();
     private static final long MAX_SEQUENCE = (1 << 12) - 1;
     private static final int THREAD_COUNT = Constants.NUM_300;
+    private static volatile boolean cachedClock = false;
 
     static {
         try {
@@ -39,8 +41,17 @@ public class SnowflakeIdWorker {
     private SnowflakeIdWorker() {
     }
 
+    /**
+     * 是否使用 {@link CachedClock} 代替 {@link System#currentTimeMillis()}
+     *
+     * @param cached 是否使用缓存时钟
+     */
+    public static void useCachedClock(boolean cached) {
+        cachedClock = cached;
+    }
+
     public synchronized static Long nextId() {
-        long l = System.currentTimeMillis();
+        long l = CachedClock.currentTimeMillis(cachedClock);
         if (lastTime == l) {
             ++sequence;
         } else {
@@ -53,6 +64,54 @@ public class SnowflakeIdWorker {
         return lastTime << 22 | SERVICE_ID << 17 | workId << 12 | sequence;
     }
 
+    /**
+     * 批量获取ID, 一次加锁内按毫秒整段预留序列号
+     *
+     * @param n 需要的ID个数
+     * @return 严格递增的ID数组
+     * @throws RuntimeException 时钟回拨
+     */
+    public synchronized static long[] nextIds(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("id count must be greater than 0, but was " + n);
+        }
+        long[] ids = new long[n];
+        int filled = 0;
+        while (filled < n) {
+            long l = CachedClock.currentTimeMillis(cachedClock);
+            if (l < lastTime) {
+                // 与 SnowflakeIdGenerator 一样拒绝生成, 不在持有锁时等待时钟追上
+                throw new RuntimeException(
+                        String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", lastTime - l));
+            }
+            long first = 0L;
+            if (lastTime == l) {
+                first = sequence + 1;
+                if (first > MAX_SEQUENCE) {
+                    // 本毫秒序列号已用完, 等待下一个毫秒(最多 1 毫秒)
+                    l = tilNextMillis(lastTime);
+                    first = 0L;
+                }
+            }
+            int count = (int) Math.min(n - filled, MAX_SEQUENCE - first + 1);
+            long prefix = l << 22 | SERVICE_ID << 17 | workId << 12;
+            for (int i = 0; i < count; i++) {
+                ids[filled++] = prefix | (first + i);
+            }
+            lastTime = l;
+            sequence = first + count - 1;
+        }
+        return ids;
+    }
+
+    private static long tilNextMillis(long last) {
+        long l = CachedClock.currentTimeMillis(cachedClock);
+        while (l <= last) {
+            l = CachedClock.currentTimeMillis(cachedClock);
+        }
+        return l;
+    }
+
     public static void main(String[] args) throws InterruptedException {
         Map<Long, Long> map = new ConcurrentHashMap<>(1000);
         CountDownLatch latch = new CountDownLatch(THREAD_COUNT);
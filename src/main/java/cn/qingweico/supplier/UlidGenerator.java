@@ -0,0 +1,130 @@
+package cn.qingweico.supplier;
+
+import cn.qingweico.concurrent.CachedClock;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ULID(Universally Unique Lexicographically Sortable Identifier) 生成器
+ * <pre>
+ *  01AN4Z07BY      79KA1307SR9X4MV3
+ * |----------|    |----------------|
+ *  Timestamp          Randomness
+ *   48bits             80bits
+ * </pre>
+ * 使用 Crockford Base32 编码为 26 个字符, 字典序即时间序
+ * - 随机部分来自 {@link ThreadLocalRandom}, 线程之间没有竞争
+ * - 同一线程同一毫秒内随机部分递增, 保证单调; 时钟回拨时沿用上一次的时间戳继续递增
+ * - {@link #next(char[], int)} / {@link #next(byte[], int)} 直接编码到调用方预先分配的数组中, 不产生任何临时对象
+ *
+ * @author zqw
+ * @date 2026/10/19
+ * @see <a href="https://github.com/ulid/spec">ulid spec</a>
+ */
+public class UlidGenerator implements Generator<String> {
+    /**
+     * ULID 编码后的长度
+     */
+    public static final int LENGTH = 26;
+    private static final int TIMESTAMP_LENGTH = 10;
+    private static final long RANDOM_HIGH_MASK = 0xFFFFL;
+    private static final char[] ENCODING = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private final boolean cachedClock;
+
+    public UlidGenerator() {
+        this(false);
+    }
+
+    /**
+     * @param cachedClock 是否使用 {@link CachedClock} 代替 {@link System#currentTimeMillis()}
+     */
+    public UlidGenerator(boolean cachedClock) {
+        this.cachedClock = cachedClock;
+    }
+
+    /**
+     * 生成下一个 ULID 字符串, 只分配结果 {@link String} 本身
+     *
+     * @return 26 个字符的 ULID
+     */
+    @Override
+    public String next() {
+        State state = STATE.get();
+        next(state.buffer, 0);
+        return new String(state.buffer);
+    }
+
+    /**
+     * 将下一个 ULID 编码到 {@code dst[offset, offset + 26)}
+     *
+     * @param dst    目标数组
+     * @param offset 起始下标
+     */
+    public void next(char[] dst, int offset) {
+        State state = advance();
+        long time = state.lastMillis;
+        for (int i = offset + TIMESTAMP_LENGTH - 1; i >= offset; i--) {
+            dst[i] = ENCODING[(int) (time & 31)];
+            time >>>= 5;
+        }
+        long hi = state.randomHigh;
+        long lo = state.randomLow;
+        for (int i = offset + LENGTH - 1; i >= offset + TIMESTAMP_LENGTH; i--) {
+            dst[i] = ENCODING[(int) (lo & 31)];
+            lo = (lo >>> 5) | (hi << 59);
+            hi >>>= 5;
+        }
+    }
+
+    /**
+     * 将下一个 ULID 以 ASCII 编码到 {@code dst[offset, offset + 26)}
+     *
+     * @param dst    目标数组
+     * @param offset 起始下标
+     */
+    public void next(byte[] dst, int offset) {
+        State state = advance();
+        long time = state.lastMillis;
+        for (int i = offset + TIMESTAMP_LENGTH - 1; i >= offset; i--) {
+            dst[i] = (byte) ENCODING[(int) (time & 31)];
+            time >>>= 5;
+        }
+        long hi = state.randomHigh;
+        long lo = state.randomLow;
+        for (int i = offset + LENGTH - 1; i >= offset + TIMESTAMP_LENGTH; i--) {
+            dst[i] = (byte) ENCODING[(int) (lo & 31)];
+            lo = (lo >>> 5) | (hi << 59);
+            hi >>>= 5;
+        }
+    }
+
+    /**
+     * 推进当前线程的状态: 新的毫秒重新取随机数, 同一毫秒内随机部分加一
+     */
+    private State advance() {
+        State state = STATE.get();
+        long now = CachedClock.currentTimeMillis(cachedClock);
+        if (now > state.lastMillis) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            state.lastMillis = now;
+            state.randomHigh = random.nextLong() & RANDOM_HIGH_MASK;
+            state.randomLow = random.nextLong();
+            return state;
+        }
+        // 同一毫秒或时钟回拨: 80 位随机部分作为整体加一
+        if (++state.randomLow == 0L && (state.randomHigh = (state.randomHigh + 1) & RANDOM_HIGH_MASK) == 0L) {
+            // 随机部分溢出, 借用下一毫秒的时间戳
+            state.lastMillis++;
+        }
+        return state;
+    }
+
+    private static final class State {
+        long lastMillis = -1L;
+        long randomHigh;
+        long randomLow;
+        final char[] buffer = new char[LENGTH];
+    }
+}